@@ -0,0 +1,234 @@
+package io.github.jhipster.loaded.benchmark;
+
+import io.github.jhipster.loaded.watcher.JdkWatchBackend;
+import io.github.jhipster.loaded.watcher.PollingWatchBackend;
+import io.github.jhipster.loaded.watcher.WatchBackend;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the watch backends on trees of class files: the time to register the directories, the latency
+ * between the modification of a file and its event, and the CPU used while nothing changes.
+ *
+ * The benchmark is run with the benchmark profile, once the project has been installed:
+ *   mvn -Pbenchmark install -DskipTests
+ *   mvn -Pbenchmark -pl benchmark exec:java -Dbenchmark.sizes=10000,50000
+ *
+ * The other parameters are benchmark.iterations (the number of modified files, 30 by default),
+ * benchmark.pollInterval (the interval of the polling backend in ms, 1000 by default) and
+ * benchmark.idleTime (how long the CPU use is measured in s, 10 by default).
+ *
+ * The trees are created in the temporary directory, with 100 class files per directory.
+ */
+public final class WatchBackendBenchmark {
+
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    private static final long EVENT_TIMEOUT = 10000;
+
+    private WatchBackendBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : System.getProperty("benchmark.sizes", "10000,50000").split(",")) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        int iterations = Integer.getInteger("benchmark.iterations", 30);
+        long pollInterval = Long.getLong("benchmark.pollInterval", 1000L);
+        long idleTime = Long.getLong("benchmark.idleTime", 10L);
+
+        System.out.printf("%-8s %8s %14s %14s %14s %14s %8s %12s%n", "backend", "files", "register (ms)",
+                "median (ms)", "p95 (ms)", "max (ms)", "missed", "idle CPU (%)");
+        for (int size : sizes) {
+            Path root = createTree(size);
+            try {
+                for (String backendName : Arrays.asList("jdk", "polling")) {
+                    WatchBackend backend = "jdk".equals(backendName) ? new JdkWatchBackend(FileSystems.getDefault()) :
+                            new PollingWatchBackend(pollInterval, Runtime.getRuntime().availableProcessors());
+                    Result result = run(backend, root, size, iterations, idleTime);
+                    System.out.printf("%-8s %8d %14d %14d %14d %14d %8d %12.2f%n", backendName, size,
+                            result.registrationTime, result.getPercentile(50), result.getPercentile(95),
+                            result.getPercentile(100), result.missedEvents, result.idleCpu);
+                }
+            } finally {
+                deleteTree(root);
+            }
+        }
+    }
+
+    private static Result run(final WatchBackend backend, Path root, int size, int iterations, long idleTime)
+            throws Exception {
+        final Result result = new Result();
+        final ExpectedEvent expectedEvent = new ExpectedEvent();
+        Thread pollThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        backend.poll(200, expectedEvent);
+                    }
+                } catch (InterruptedException e) {
+                    // the benchmark is done
+                }
+            }
+        }, "benchmark-poll");
+        try {
+            long start = System.nanoTime();
+            registerTree(backend, root);
+            result.registrationTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            pollThread.start();
+
+            // let the first scan of the polling backend index the tree
+            Thread.sleep(2000);
+
+            Random random = new Random(size);
+            for (int i = 0; i < iterations; i++) {
+                int index = random.nextInt(size);
+                Path file = getFile(root, index);
+                CountDownLatch latch = expectedEvent.expect(file);
+                long modificationTime = System.nanoTime();
+                // the size changes, so the change is seen even with a coarse last modified time
+                Files.write(file, new byte[64 + i + 1]);
+                if (latch.await(EVENT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    result.latencies.add(TimeUnit.NANOSECONDS.toMillis(expectedEvent.eventTime - modificationTime));
+                } else {
+                    result.missedEvents++;
+                }
+                // the next modification does not start at the same time of the polling interval
+                Thread.sleep(50 + random.nextInt(200));
+            }
+
+            expectedEvent.expect(null);
+            long cpuStart = getProcessCpuTime();
+            long idleStart = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(idleTime));
+            long cpuTime = getProcessCpuTime() - cpuStart;
+            result.idleCpu = cpuStart < 0 ? Double.NaN : 100.0 * cpuTime / (System.nanoTime() - idleStart);
+        } finally {
+            pollThread.interrupt();
+            pollThread.join();
+            backend.close();
+        }
+        return result;
+    }
+
+    /**
+     * @return the CPU time of the process in ns, or -1 if it is not available
+     */
+    private static long getProcessCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static Path createTree(int size) throws IOException {
+        Path root = Files.createTempDirectory("watch-benchmark");
+        for (int i = 0; i < size; i++) {
+            Path file = getFile(root, i);
+            if (i % FILES_PER_DIRECTORY == 0) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, new byte[64]);
+        }
+        return root;
+    }
+
+    private static Path getFile(Path root, int index) {
+        int directory = index / FILES_PER_DIRECTORY;
+        return root.resolve("p" + directory / 10).resolve("d" + directory).resolve("Class" + index + ".class");
+    }
+
+    private static void registerTree(final WatchBackend backend, Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                backend.register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Records the time of the first event of the modified file.
+     */
+    private static class ExpectedEvent implements WatchBackend.Callback {
+
+        private volatile Path file;
+        private volatile CountDownLatch latch;
+        private volatile long eventTime;
+
+        CountDownLatch expect(Path file) {
+            latch = new CountDownLatch(1);
+            this.file = file;
+            return latch;
+        }
+
+        @Override
+        public void onChange(Path path, WatchEvent.Kind kind) {
+            if (path.equals(file) && latch.getCount() > 0) {
+                eventTime = System.nanoTime();
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public void onOverflow(Path dir) {
+        }
+
+        @Override
+        public void onRemoved(Path dir) {
+        }
+    }
+
+    private static class Result {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private long registrationTime;
+        private int missedEvents;
+        private double idleCpu;
+
+        long getPercentile(int percentile) {
+            if (latencies.isEmpty()) {
+                return -1;
+            }
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return sorted.get(Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.jhipster.loaded;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The content of the class files read by the watcher, by class name.
+ *
+ * The Spring Loaded events only give the name of the reloaded class: the plugin and the reloader thread
+ * use the bytes read by the watcher instead of reading the class file again. The bytes are only used
+ * while the class file has not been modified since it has been read, the class file is read otherwise.
+ */
+final class ClassFileBytes {
+
+    private static final ConcurrentMap<String, ClassFile> classFiles = new ConcurrentHashMap<>();
+
+    private ClassFileBytes() {
+    }
+
+    /**
+     * Keep the bytes of a class file which has been read by the watcher.
+     */
+    static void put(String typename, Path file, byte[] bytes) {
+        try {
+            classFiles.put(typename, new ClassFile(file, Files.readAttributes(file, BasicFileAttributes.class), bytes));
+        } catch (IOException e) {
+            classFiles.remove(typename);
+        }
+    }
+
+    /**
+     * @return the bytes of the class file of the type, or null if they are not known or out of date
+     */
+    static byte[] get(String typename) {
+        ClassFile classFile = classFiles.get(typename);
+        return classFile == null ? null : classFile.getBytes();
+    }
+
+    /**
+     * @return the bytes of the class file of the type, which are forgotten, or null if they are not known
+     * or out of date
+     */
+    static byte[] take(String typename) {
+        ClassFile classFile = classFiles.remove(typename);
+        return classFile == null ? null : classFile.getBytes();
+    }
+
+    static void remove(String typename) {
+        classFiles.remove(typename);
+    }
+
+    private static class ClassFile {
+
+        private final Path file;
+        private final long lastModified;
+        private final long size;
+        private final byte[] bytes;
+
+        private ClassFile(Path file, BasicFileAttributes attributes, byte[] bytes) {
+            this.file = file;
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the bytes, or null if the class file has been modified since they have been read
+         */
+        private byte[] getBytes() {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.lastModifiedTime().toMillis() == lastModified && attributes.size() == size &&
+                        size == bytes.length) {
+                    return bytes;
+                }
+            } catch (IOException e) {
+                // the class file has been deleted
+            }
+            return null;
+        }
+    }
+}
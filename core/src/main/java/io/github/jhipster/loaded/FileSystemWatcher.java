@@ -4,6 +4,7 @@ import org.springframework.context.ConfigurableApplicationContext;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public interface FileSystemWatcher {
 
@@ -13,6 +14,18 @@ public interface FileSystemWatcher {
 
     List<String> getWatchFolders();
 
+    /**
+     * @return true when all the watch folders have been registered, false otherwise
+     */
+    boolean isReady();
+
+    /**
+     * Wait until all the watch folders have been registered.
+     *
+     * @return true if the watcher is ready, false if the timeout elapsed before
+     */
+    boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Register the given directory, and all its sub-directories, with the
      * WatchService.
@@ -2,25 +2,49 @@ package io.github.jhipster.loaded;
 
 import io.github.jhipster.loaded.listener.filewatcher.FileWatcherListener;
 import io.github.jhipster.loaded.listener.filewatcher.NewClassLoaderListener;
-import com.sun.nio.file.SensitivityWatchEventModifier;
-import org.apache.commons.io.filefilter.SuffixFileFilter;
+import io.github.jhipster.loaded.watcher.ClassFileIndex;
+import io.github.jhipster.loaded.watcher.ClassFileIndexStore;
+import io.github.jhipster.loaded.watcher.ClassFileReader;
+import io.github.jhipster.loaded.watcher.FileChange;
+import io.github.jhipster.loaded.watcher.FileChangeCoalescer;
+import io.github.jhipster.loaded.watcher.JarEntryIndex;
+import io.github.jhipster.loaded.watcher.JdkWatchBackend;
+import io.github.jhipster.loaded.watcher.PollingWatchBackend;
+import io.github.jhipster.loaded.watcher.WatchBackend;
+import io.github.jhipster.loaded.watcher.WatchPathFilter;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.Environment;
+import org.springframework.util.ClassUtils;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 
 /**
@@ -29,30 +53,66 @@ import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
  * The watcher will monitor all folders and sub-folders to check if a new class
  * is created. If so, the new class will be loaded and managed by Spring-Loaded.
  */
-public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
+public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable, WatchBackend.Callback {
 
     private static Logger log = LoggerFactory.getLogger(JHipsterFileSystemWatcher.class);
 
     private static boolean isStarted;
-    private final WatchService watcher;
-    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final WatchBackend backend;
     private final List<FileWatcherListener> fileWatcherListeners = new ArrayList<>();
     private final List<String> watchFolders;
+    private final List<Path> rootPaths = new ArrayList<>();
+    private final List<Path> jarPaths = new ArrayList<>();
+    private final JarEntryIndex jarEntryIndex = new JarEntryIndex();
+    private final Set<Path> invalidRoots = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
     private final ConfigurableApplicationContext ctx;
     private final ClassLoader classLoader;
+    private final FileChangeCoalescer coalescer;
+    private final WatchPathFilter pathFilter;
+    private final ClassFileIndex classFileIndex = new ClassFileIndex();
+    private final ClassFileIndexStore classFileIndexStore;
+    private final Map<Path, ClassFileIndex.Entry> persistedEntries = new ConcurrentHashMap<>();
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final long recoveryInterval;
+    private final long deleteQuietPeriod;
 
+    /**
+     * The start time of the JVM: the class files older than it have been loaded in their last version.
+     */
+    private final long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    /**
+     * The deleted files which have not been dispatched yet, by watch folder. They are checked once the watch
+     * folder exists and has not changed for the delete quiet period, so the classes removed by a "mvn clean"
+     * and compiled again are not unregistered.
+     */
+    private final ConcurrentMap<Path, Set<Path>> pendingDeletions = new ConcurrentHashMap<>();
+
+    /**
+     * The time of the last change received in each watch folder.
+     */
+    private final ConcurrentMap<Path, Long> lastChanges = new ConcurrentHashMap<>();
+    private final AtomicInteger registeredDirectories = new AtomicInteger();
 
     public JHipsterFileSystemWatcher(List<String> watchFolders, ConfigurableApplicationContext ctx, ClassLoader classLoader) throws Exception {
         this.watchFolders = watchFolders;
         this.ctx = ctx;
         this.classLoader = classLoader;
-        watcher = FileSystems.getDefault().newWatchService();
-
-        // Register all folders
+        coalescer = new FileChangeCoalescer(ctx.getEnvironment().getProperty("hotReload.watch.quietPeriod", Long.class, 100L));
+        recoveryInterval = ctx.getEnvironment().getProperty("hotReload.watch.recoveryInterval", Long.class, 1000L);
+        deleteQuietPeriod = ctx.getEnvironment().getProperty("hotReload.watch.deleteQuietPeriod", Long.class, 1000L);
+        classFileIndexStore = new ClassFileIndexStore(FileSystems.getDefault().getPath(ctx.getEnvironment().getProperty(
+                "hotReload.watch.indexDir", System.getProperty("java.io.tmpdir") + File.separator + "jhipster-loaded")));
+        pathFilter = new WatchPathFilter(FileSystems.getDefault(),
+                getPropertyList(ctx.getEnvironment(), "hotReload.watch.include"),
+                getPropertyList(ctx.getEnvironment(), "hotReload.watch.exclude"));
         for (String watchFolder : watchFolders) {
-            final Path classesFolderPath = FileSystems.getDefault().getPath(watchFolder);
-            watchDirectory(classesFolderPath);
+            rootPaths.add(FileSystems.getDefault().getPath(watchFolder));
         }
+        for (String watchJar : getWatchJars(ctx.getEnvironment())) {
+            jarPaths.add(FileSystems.getDefault().getPath(watchJar).toAbsolutePath().normalize());
+        }
+        backend = createWatchBackend(ctx.getEnvironment());
 
         registerFileWatcherListeners();
 
@@ -78,10 +138,14 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
                 watchFolders.add("target/classes");
             }
 
-            final Thread thread = new Thread(new JHipsterFileSystemWatcher(watchFolders, ctx, classLoader));
+            final JHipsterFileSystemWatcher fileSystemWatcher = new JHipsterFileSystemWatcher(watchFolders, ctx, classLoader);
+            final Thread thread = new Thread(fileSystemWatcher);
             thread.setDaemon(true);
             thread.start();
 
+            // Register all folders, the events received in the meantime are kept by the watcher thread
+            fileSystemWatcher.registerWatchFolders();
+
             Runtime.getRuntime().addShutdownHook(new Thread() {
                 public void run() {
                     JHipsterFileSystemWatcher.isStarted = false;
@@ -90,6 +154,8 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
                         // on the watcher queue.
                         thread.interrupt();
                         thread.join();
+                        fileSystemWatcher.backend.close();
+                        fileSystemWatcher.saveClassFileIndex();
                     } catch (InterruptedException e) {
                         log.error("Failed during the JVM shutdown", e);
                     }
@@ -115,9 +181,166 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
         return watchFolders;
     }
 
+    @Override
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
+    }
+
+    /**
+     * Register all the watch folders in background, so the application startup is not slowed down.
+     *
+     * The roots and their sub-directories are registered in parallel. The class files which exist before
+     * the registration are indexed; the changes received during the registration are staged by the coalescer
+     * and dispatched once the watcher is ready.
+     *
+     * The index persisted by the previous run is loaded first: the class files which did not change since
+     * are not read again.
+     */
+    private void registerWatchFolders() {
+        final long registrationStart = System.currentTimeMillis();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        final List<RegisterDirectoryTask> tasks = new ArrayList<>();
+        for (Path rootPath : rootPaths) {
+            tasks.add(new RegisterDirectoryTask(rootPath, registrationStart));
+        }
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (Path rootPath : rootPaths) {
+                        persistedEntries.putAll(classFileIndexStore.load(rootPath));
+                    }
+                    pool.invoke(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            invokeAll(tasks);
+                        }
+                    });
+                    registerWatchJars();
+                    log.debug("{} directories have been registered and {} class files have been indexed in {} ms",
+                            registeredDirectories.get(), classFileIndex.size(), System.currentTimeMillis() - registrationStart);
+                    persistedEntries.clear();
+                    saveClassFileIndex();
+                } catch (Exception e) {
+                    log.error("Failed to register the watch folders", e);
+                } finally {
+                    pool.shutdown();
+                    ready.countDown();
+                }
+            }
+        }, "jhipster-watcher-registration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watch the directory of each watched JAR, and index the CRC32 of its classes.
+     */
+    private void registerWatchJars() {
+        for (Path jarPath : jarPaths) {
+            try {
+                register(jarPath.getParent());
+                jarEntryIndex.seed(jarPath);
+                log.debug("The JAR '{}' will be monitored for changes", jarPath);
+            } catch (IOException e) {
+                log.error("Failed to register the JAR '{}'", jarPath, e);
+            }
+        }
+    }
+
+    /**
+     * Index an existing class file during the registration.
+     *
+     * A class file which matches the persisted index is not read. A class file compiled since the JVM has started
+     * may not have been loaded in its last version, so it is staged as a change: it is dispatched only if its bytes
+     * are different from the persisted index.
+     */
+    private void indexClassFile(Path file, BasicFileAttributes attrs, long registrationStart) {
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        ClassFileIndex.Entry persistedEntry = persistedEntries.get(file);
+        if (persistedEntry != null && persistedEntry.getSize() == attrs.size() &&
+                persistedEntry.getLastModified() == lastModified) {
+            classFileIndex.put(file, persistedEntry);
+        } else if (lastModified < jvmStartTime) {
+            classFileIndex.seed(file, attrs);
+        } else if (lastModified < registrationStart) {
+            log.debug("The class file '{}' has been compiled during the application startup", file);
+            if (persistedEntry != null) {
+                classFileIndex.put(file, persistedEntry);
+            }
+            coalescer.stage(file.getParent().toString().replace(File.separator, "/"), file,
+                    persistedEntry == null ? ENTRY_CREATE : ENTRY_MODIFY);
+        }
+        // the files written during the registration are not indexed, they must be considered as changed
+    }
+
+    /**
+     * @return true if the directory is not excluded by the path filter
+     */
+    private boolean isWatched(Path dir) {
+        return pathFilter.acceptDirectory(relativize(dir));
+    }
+
+    /**
+     * @return true if the changes of the file must be sent to the listeners, according to the path filter
+     */
+    private boolean isAccepted(Path file) {
+        return pathFilter.acceptFile(relativize(file));
+    }
+
+    /**
+     * @return the path relative to its watch folder
+     */
+    private Path relativize(Path path) {
+        Path root = getWatchFolder(path);
+        return root == null ? path : root.relativize(path);
+    }
+
+    /**
+     * @return the watch folder containing the path, or null if the path is not in a watch folder
+     */
+    private Path getWatchFolder(Path path) {
+        Path root = null;
+        for (Path rootPath : rootPaths) {
+            if (path.startsWith(rootPath) && (root == null || rootPath.getNameCount() > root.getNameCount())) {
+                root = rootPath;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Share the bytes of a class file with the Spring Loaded plugin and the reloader thread, so they do not
+     * read it again when the class is reloaded.
+     */
+    private void publishClassFile(Path file, byte[] bytes) {
+        Path root = getWatchFolder(file);
+        if (root != null) {
+            String relativeName = root.relativize(file).toString();
+            String typename = relativeName.substring(0, relativeName.length() - ".class".length())
+                    .replace(File.separatorChar, '.');
+            ClassFileBytes.put(typename, file, bytes);
+        }
+    }
+
+    /**
+     * Save the class file index of each watch folder, to be used by the next run.
+     */
+    private void saveClassFileIndex() {
+        for (Path rootPath : rootPaths) {
+            classFileIndexStore.save(rootPath, classFileIndex.getEntries(rootPath));
+        }
+    }
+
     /**
      * Register the given directory, and all its sub-directories, with the
-     * WatchService.
+     * watch backend.
      */
     public void watchDirectory(final Path start) {
         // register directory and sub-directories
@@ -126,6 +349,9 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
                 @Override
                 public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
                         throws IOException {
+                    if (!isWatched(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
                     register(dir);
                     return FileVisitResult.CONTINUE;
                 }
@@ -136,72 +362,363 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
     }
 
     /**
-     * Register the given directory with the WatchService.
+     * Register again the given directory and its sub-directories, and stage the class files which
+     * are not up to date in the index. This is used when events may have been lost.
+     */
+    private void rescan(final Path start) {
+        final long rescanStart = System.currentTimeMillis();
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                        throws IOException {
+                    if (!isWatched(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (ClassFileIndex.isClassFile(file) && isAccepted(file) && !classFileIndex.isUpToDate(file, attrs)) {
+                        WatchEvent.Kind kind = classFileIndex.contains(file) ? ENTRY_MODIFY : ENTRY_CREATE;
+                        coalescer.stage(file.getParent().toString().replace(File.separator, "/"), file, kind);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to rescan the directory '{}'", start);
+        }
+        log.debug("The directory '{}' has been rescanned in {} ms", start, System.currentTimeMillis() - rescanStart);
+    }
+
+    /**
+     * Re-arm the watch folders which have been removed (by a "mvn clean" for example), as soon as they exist again.
+     * Their pending deletions are checked once they have not changed for the delete quiet period.
+     */
+    private void recoverInvalidRoots() {
+        for (Iterator<Path> it = invalidRoots.iterator(); it.hasNext(); ) {
+            Path root = it.next();
+            if (Files.isDirectory(root)) {
+                log.info("JHipster reload - The watch folder '{}' is available again, rescanning it", root);
+                it.remove();
+                lastChanges.put(root, System.currentTimeMillis());
+                rescan(root);
+            }
+        }
+    }
+
+    /**
+     * Send the pending deletions of the watch folders which exist and are stable to the listeners, keeping only
+     * the files which are still missing. The deletions of a missing watch folder wait until it is rebuilt.
+     */
+    private void dispatchDeletions() {
+        long now = System.currentTimeMillis();
+        for (Path root : pendingDeletions.keySet()) {
+            if (invalidRoots.contains(root)) {
+                continue;
+            }
+            if (!Files.isDirectory(root)) {
+                log.debug("The watch folder '{}' is missing, its deletions wait until it is created again", root);
+                invalidRoots.add(root);
+                continue;
+            }
+            Long lastChange = lastChanges.get(root);
+            if (lastChange != null && now - lastChange < deleteQuietPeriod) {
+                continue;
+            }
+            Set<Path> files = pendingDeletions.remove(root);
+            if (files == null) {
+                continue;
+            }
+            for (Path file : files) {
+                if (Files.exists(file, NOFOLLOW_LINKS)) {
+                    log.trace("The file '{}' has been created again, it is not deleted", file);
+                    continue;
+                }
+                classFileIndex.remove(file);
+                callFileWatcherListerners(file.getParent().toString().replace(File.separator, "/"), file, null,
+                        ENTRY_DELETE);
+            }
+        }
+    }
+
+    /**
+     * @return the time to wait for the recovery of the watch folders or for the pending deletions, in ms,
+     * or -1 if there is nothing to wait for
+     */
+    private long getRecoveryTimeout() {
+        if (!pendingDeletions.isEmpty()) {
+            return invalidRoots.isEmpty() ? deleteQuietPeriod : Math.min(deleteQuietPeriod, recoveryInterval);
+        }
+        return invalidRoots.isEmpty() ? -1 : recoveryInterval;
+    }
+
+    /**
+     * Register the given directory with the watch backend.
      */
     private void register(Path dir) throws IOException {
-        WatchKey key = dir.register(watcher, new WatchEvent.Kind[]{ENTRY_CREATE, ENTRY_MODIFY}, SensitivityWatchEventModifier.HIGH);
-        Path prev = keys.get(key);
-        if (prev == null) {
-            log.debug("Directory : '{}' will be monitored for changes", dir);
+        backend.register(dir);
+        registeredDirectories.incrementAndGet();
+    }
+
+    /**
+     * Create the watch backend defined by the hotReload.watch.backend property.
+     *
+     * The "jdk" backend (the default) uses the WatchService of the JDK. The "polling" backend scans the
+     * watch folders every hotReload.watch.pollInterval ms, for the file systems which do not send events
+     * (Docker volumes, network file systems). Any other value is the name of a WatchBackend implementation.
+     */
+    private static WatchBackend createWatchBackend(Environment env) throws Exception {
+        String backendName = env.getProperty("hotReload.watch.backend", "jdk");
+        switch (backendName) {
+            case "jdk":
+                return new JdkWatchBackend(FileSystems.getDefault());
+            case "polling":
+                return new PollingWatchBackend(env.getProperty("hotReload.watch.pollInterval", Long.class, 1000L),
+                        Runtime.getRuntime().availableProcessors());
+            default:
+                log.info("JHipster reload - Using the watch backend '{}'", backendName);
+                return (WatchBackend) ClassUtils.forName(backendName, JHipsterFileSystemWatcher.class.getClassLoader())
+                        .newInstance();
         }
-        keys.put(key, dir);
     }
 
     /**
-     * Process all events for keys queued to the watcher.
+     * Process all events detected by the watch backend.
      * 
      * When the event is a ENTRY_CREATE or ENTRY_MODIFY, the folders will be added to the watcher,
-     * the classes will be loaded by SpringLoaded
+     * the classes will be loaded by SpringLoaded. The classes of a new directory are loaded at once.
+     * When the event is a ENTRY_DELETE, the listeners unregister the deleted classes.
+     * The events are staged by the coalescer and each file is sent to the listeners once it is stable,
+     * if its content is different from the last version seen.
+     *
+     * When events have been lost (OVERFLOW) or a watch folder has been removed, the watcher recovers
+     * by rescanning the directories. The deletions are only dispatched once their watch folder exists and
+     * has been stable for the delete quiet period, and only for the files which are still missing.
      */
     public void run() {
         while (isStarted) {
-            // wait for key to be signalled
-            WatchKey key;
+            // wait for events, or for the staged changes to be stable
             try {
-                key = watcher.take();
+                if (coalescer.hasPendingChanges() || !isReady()) {
+                    // until the registration is done, it may stage changes without any event to wake the watcher
+                    backend.poll(coalescer.getQuietPeriod(), this);
+                } else {
+                    backend.poll(getRecoveryTimeout(), this);
+                }
             } catch (InterruptedException x) {
                 return;
             }
 
-            Path dir = keys.get(key);
-            if (dir == null) {
+            if (!isReady()) {
                 continue;
             }
 
-            for (WatchEvent<?> event : key.pollEvents()) {
-                WatchEvent.Kind kind = event.kind();
-
-                // Context for directory entry event is the file name of entry
-                // noinspection unchecked
-                WatchEvent<Path> ev = (WatchEvent<Path>) event;
-                Path name = ev.context();
-                Path child = dir.resolve(name);
-
-                // if directory is created, and watching recursively, then
-                // register it and its sub-directories
-                if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
-                    watchDirectory(child);
-                    // load the classes that have been copied
-                    final File[] classes = child.toFile().listFiles((FileFilter) new SuffixFileFilter(".class"));
-                    for (File aFile : classes) {
-                        final String parentFolder = aFile.getParent();
-                        callFileWatcherListerners(parentFolder, aFile.toPath(), kind);
+            recoverInvalidRoots();
+            dispatchDeletions();
+
+            for (FileChange fileChange : coalescer.pollStableChanges()) {
+                if (jarPaths.contains(fileChange.getFile())) {
+                    if (fileChange.getKind() != ENTRY_DELETE) {
+                        reloadJar(fileChange.getFile());
                     }
-                } else {
-                    callFileWatcherListerners(dir.toString().replace(File.separator,"/"), child, kind);
+                    continue;
+                }
+                if (fileChange.getKind() == ENTRY_CREATE && Files.isDirectory(fileChange.getFile(), NOFOLLOW_LINKS)) {
+                    loadDirectory(fileChange.getFile());
+                    continue;
+                }
+                // the class file is read once, its bytes are shared by the index and the listeners
+                byte[] bytes = null;
+                if (fileChange.getKind() == ENTRY_DELETE) {
+                    classFileIndex.remove(fileChange.getFile());
+                } else if (ClassFileIndex.isClassFile(fileChange.getFile())) {
+                    try {
+                        bytes = ClassFileReader.read(fileChange.getFile());
+                    } catch (IOException e) {
+                        log.debug("Failed to read the class file '{}'", fileChange.getFile());
+                        continue;
+                    }
+                    if (!classFileIndex.update(fileChange.getFile(), bytes)) {
+                        // skip the class files rewritten with the same bytes
+                        log.trace("The class file '{}' has not changed, nothing to do", fileChange.getFile());
+                        continue;
+                    }
+                    publishClassFile(fileChange.getFile(), bytes);
                 }
+                callFileWatcherListerners(fileChange.getParentFolder(), fileChange.getFile(), bytes, fileChange.getKind());
             }
+        }
+    }
 
-            // reset key and remove from set if directory no longer accessible
-            boolean valid = key.reset();
-            if (!valid) {
-                keys.remove(key);
+    /**
+     * Stage a change detected by the watch backend.
+     */
+    @Override
+    public void onChange(Path child, WatchEvent.Kind kind) {
+        if (jarPaths.contains(child)) {
+            coalescer.stage(child.getParent().toString().replace(File.separator, "/"), child, kind);
+            return;
+        }
+        Path root = getWatchFolder(child);
+        if (root == null) {
+            log.trace("The file '{}' is next to a watched JAR, nothing to do", child);
+            return;
+        }
+        lastChanges.put(root, System.currentTimeMillis());
+        if (kind == ENTRY_DELETE) {
+            stageDeletion(root, child);
+            return;
+        }
+        // if directory is created, and watching recursively, then
+        // register it and its sub-directories
+        if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
+            if (kind != ENTRY_CREATE) {
+                // the changes of the files of a registered directory are received for each file
+                return;
+            }
+            if (!isWatched(child)) {
+                log.trace("The directory '{}' is excluded, nothing to do", child);
+                return;
+            }
+            watchDirectory(child);
+            // the classes of the new directory are loaded at once, when no file has been copied for the quiet period
+            if (!coalescer.touchNewDirectory(child)) {
+                coalescer.stage(child.getParent().toString().replace(File.separator, "/"), child, kind);
+            }
+        } else if (isAccepted(child) && !coalescer.touchNewDirectory(child)) {
+            coalescer.stage(child.getParent().toString().replace(File.separator, "/"), child, kind);
+        }
+    }
+
+    /**
+     * Send all the class files of a new directory tree to the listeners at once, so the classes are defined
+     * in the order of their dependencies.
+     */
+    private void loadDirectory(Path dir) {
+        final Map<Path, byte[]> classFiles = new LinkedHashMap<>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return isWatched(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (ClassFileIndex.isClassFile(file) && isAccepted(file)) {
+                        try {
+                            byte[] bytes = ClassFileReader.read(file);
+                            if (classFileIndex.update(file, bytes)) {
+                                classFiles.put(file, bytes);
+                                publishClassFile(file, bytes);
+                            }
+                        } catch (IOException e) {
+                            log.debug("Failed to read the class file '{}'", file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to read the directory '{}'", dir, e);
+        }
+        if (classFiles.isEmpty()) {
+            return;
+        }
+        log.debug("JHipster reload - {} class files have been found in the new directory '{}'", classFiles.size(), dir);
+        for (FileWatcherListener fileWatcherListener : fileWatcherListeners) {
+            Map<Path, byte[]> supportedClassFiles = new LinkedHashMap<>();
+            for (Map.Entry<Path, byte[]> classFile : classFiles.entrySet()) {
+                if (fileWatcherListener.support(classFile.getKey(), ENTRY_CREATE)) {
+                    supportedClassFiles.put(classFile.getKey(), classFile.getValue());
+                }
+            }
+            if (!supportedClassFiles.isEmpty()) {
+                fileWatcherListener.onNewDirectory(dir, supportedClassFiles);
+            }
+        }
+    }
 
-                // all directories are inaccessible
-                if (keys.isEmpty()) {
-                    break;
+    /**
+     * Send the classes of a replaced JAR which have changed to the listeners.
+     * The bytes of the classes are read from the JAR, nothing is extracted on the disk.
+     */
+    private void reloadJar(Path jar) {
+        try {
+            Map<String, WatchEvent.Kind> changes = jarEntryIndex.diff(jar);
+            if (changes.isEmpty()) {
+                log.trace("The classes of the JAR '{}' have not changed, nothing to do", jar);
+                return;
+            }
+            log.debug("JHipster reload - {} classes have changed in the JAR '{}'", changes.size(), jar);
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                for (Map.Entry<String, WatchEvent.Kind> change : changes.entrySet()) {
+                    String className = change.getKey().substring(0, change.getKey().length() - ".class".length()).replace('/', '.');
+                    byte[] bytes = null;
+                    if (change.getValue() != ENTRY_DELETE) {
+                        ZipEntry zipEntry = zipFile.getEntry(change.getKey());
+                        try (InputStream in = zipFile.getInputStream(zipEntry)) {
+                            bytes = IOUtils.toByteArray(in);
+                        }
+                    }
+                    for (FileWatcherListener fileWatcherListener : fileWatcherListeners) {
+                        fileWatcherListener.onJarChange(jar, className, bytes, change.getValue());
+                    }
                 }
             }
+        } catch (IOException e) {
+            log.error("Failed to read the JAR '{}'", jar, e);
+        }
+    }
+
+    /**
+     * Add the deletion of a file, or of all the indexed class files of a deleted directory, to the pending
+     * deletions of its watch folder: the events of the files of a directory are lost when it is moved or
+     * deleted at once.
+     */
+    private void stageDeletion(Path root, Path path) {
+        Set<Path> files = getPendingDeletions(root);
+        files.addAll(classFileIndex.getEntries(path).keySet());
+        if (!classFileIndex.contains(path) && isAccepted(path)) {
+            files.add(path);
+        }
+    }
+
+    private Set<Path> getPendingDeletions(Path root) {
+        Set<Path> files = pendingDeletions.get(root);
+        if (files == null) {
+            Set<Path> newFiles = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+            files = pendingDeletions.putIfAbsent(root, newFiles);
+            if (files == null) {
+                files = newFiles;
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Some events have been lost, check all the files of the directory.
+     */
+    @Override
+    public void onOverflow(Path dir) {
+        log.debug("Events have been lost for the directory '{}', rescanning it", dir);
+        rescan(dir);
+    }
+
+    /**
+     * The watch folder will be registered again when it is re-created. All its class files are considered
+     * as deleted, but this is only checked once it has been rebuilt.
+     */
+    @Override
+    public void onRemoved(Path dir) {
+        if (rootPaths.contains(dir)) {
+            log.info("JHipster reload - The watch folder '{}' has been removed, waiting until it is created again", dir);
+            invalidRoots.add(dir);
+            getPendingDeletions(dir).addAll(classFileIndex.getEntries(dir).keySet());
         }
     }
 
@@ -217,16 +734,38 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
      * @return the list of folders
      */
     private static List<String> getWatchFolders(Environment env) {
+        return getPropertyList(env, "hotReload.watchdir");
+    }
+
+    /**
+     * The JARs to watch, built by sibling modules for example, must be defined in the application-dev.yml as follow
+     *   hotReload:
+     *     watchjar:
+     *        - /Users/jhipster/.m2/repository/com/mycompany/demo-domain/0.1-SNAPSHOT/demo-domain-0.1-SNAPSHOT.jar
+     *
+     * @param env the environment used to retrieve the list of JARs
+     * @return the list of JARs
+     */
+    private static List<String> getWatchJars(Environment env) {
+        return getPropertyList(env, "hotReload.watchjar");
+    }
+
+    /**
+     * @param env the environment used to retrieve the list of values
+     * @param name the name of the list property
+     * @return the list of values
+     */
+    private static List<String> getPropertyList(Environment env, String name) {
         List<String> results = new ArrayList<>();
 
         int i=0;
 
-        String folder = env.getProperty("hotReload.watchdir[" + i + "]");
+        String value = env.getProperty(name + "[" + i + "]");
 
-        while(folder != null) {
-            results.add(folder);
+        while(value != null) {
+            results.add(value);
             i++;
-            folder = env.getProperty("hotReload.watchdir[" + i + "]");
+            value = env.getProperty(name + "[" + i + "]");
         }
 
         return results;
@@ -247,11 +786,51 @@ public class JHipsterFileSystemWatcher implements FileSystemWatcher, Runnable {
     /**
      * Call all listeners on changed file
      */
-    private void callFileWatcherListerners(String parentFolder, Path child, WatchEvent.Kind kind) {
+    private void callFileWatcherListerners(String parentFolder, Path child, byte[] bytes, WatchEvent.Kind kind) {
         for (FileWatcherListener fileWatcherListener : fileWatcherListeners) {
             if (fileWatcherListener.support(child, kind)) {
-                fileWatcherListener.onChange(parentFolder, child, kind);
+                fileWatcherListener.onChange(parentFolder, child, bytes, kind);
+            }
+        }
+    }
+
+    /**
+     * Register a directory, index its class files and fork a task per sub-directory.
+     */
+    private class RegisterDirectoryTask extends RecursiveAction {
+
+        private final Path dir;
+        private final long registrationStart;
+
+        private RegisterDirectoryTask(Path dir, long registrationStart) {
+            this.dir = dir;
+            this.registrationStart = registrationStart;
+        }
+
+        @Override
+        protected void compute() {
+            List<RegisterDirectoryTask> subTasks = new ArrayList<>();
+            try {
+                register(dir);
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path child : stream) {
+                        BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                        if (attrs.isDirectory()) {
+                            if (isWatched(child)) {
+                                subTasks.add(new RegisterDirectoryTask(child, registrationStart));
+                            }
+                        } else if (ClassFileIndex.isClassFile(child) && isAccepted(child)) {
+                            indexClassFile(child, attrs, registrationStart);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to register the directory '{}'", dir);
+                if (rootPaths.contains(dir)) {
+                    invalidRoots.add(dir);
+                }
             }
+            invokeAll(subTasks);
         }
     }
 }
@@ -1,6 +1,9 @@
 package io.github.jhipster.loaded;
 
+import io.github.jhipster.loaded.bytecode.ClassShape;
 import io.github.jhipster.loaded.reloader.Reloader;
+import io.github.jhipster.loaded.reloader.type.PackageTrie;
+import io.github.jhipster.loaded.reloader.type.ReloaderTypeClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -8,6 +11,8 @@ import org.springsource.loaded.Plugins;
 import org.springsource.loaded.ReloadEventProcessorPlugin;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Automatically re-configures classes when Spring Loaded triggers a hot reload event.
@@ -20,6 +25,14 @@ import java.util.Collection;
  *     </ul>
  * </p>
  * <p>
+ *     The static initializer of a reloaded class is run again only if its bytecode or the static fields of the
+ *     class have changed. This can be overridden by package in the application-dev.yml as follow
+ *       hotReload:
+ *         staticInitializer:
+ *           always: com.mycompany.myapp.config
+ *           never: com.mycompany.myapp.web
+ * </p>
+ * <p>
  *   To have Spring Loaded working, run your Application class with these VM options: 
  *   "-javaagent:spring_loaded/springloaded-jhipster.jar -noverify "
  * </p>
@@ -30,29 +43,79 @@ public class JHipsterPluginManagerReloadPlugin implements ReloadEventProcessorPl
 
     private static JHipsterReloaderThread jHipsterReloaderThread;
 
-    private String projectPackageName;
+    private final PackageTrie projectPackages;
+    private final PackageTrie alwaysRerunPackages;
+    private final PackageTrie neverRerunPackages;
+
+    /**
+     * The hash of the static state of the last version of each reloaded class.
+     */
+    private final ConcurrentMap<String, Long> staticStates = new ConcurrentHashMap<>();
 
     public JHipsterPluginManagerReloadPlugin(ConfigurableApplicationContext ctx) {
-        projectPackageName = ctx.getEnvironment().getProperty("hotReload.package.project");
+        projectPackages = PackageTrie.fromProperty(ctx.getEnvironment(), "hotReload.package.project");
+        alwaysRerunPackages = PackageTrie.fromProperty(ctx.getEnvironment(), "hotReload.staticInitializer.always");
+        neverRerunPackages = PackageTrie.fromProperty(ctx.getEnvironment(), "hotReload.staticInitializer.never");
     }
 
+    /**
+     * The static initializer is run again when the static state of the class has changed since its last version,
+     * or when the last version is not known.
+     */
     @Override
     public boolean shouldRerunStaticInitializer(String typename, Class<?> aClass, String encodedTimestamp) {
-        return true;
+        if (alwaysRerunPackages.contains(typename)) {
+            return true;
+        }
+        if (neverRerunPackages.contains(typename)) {
+            return false;
+        }
+        byte[] bytes = ClassFileBytes.get(typename);
+        if (bytes == null) {
+            bytes = ReloaderTypeClassifier.readClassFile(typename, aClass.getClassLoader());
+        }
+        if (bytes == null) {
+            return true;
+        }
+        long staticState;
+        try {
+            staticState = ClassShape.hashStaticState(bytes);
+        } catch (IllegalArgumentException e) {
+            log.debug("The class file of {} can't be parsed: {}", typename, e.getMessage());
+            staticState = 0;
+        }
+        Long previousStaticState = staticStates.put(typename, staticState);
+        boolean rerun = staticState == 0 || previousStaticState == null || previousStaticState != staticState;
+        log.trace("The static initializer of {} is {}run again", typename, rerun ? "" : "not ");
+        return rerun;
     }
 
     public void reloadEvent(String typename, Class<?> clazz, String encodedTimestamp) {
-        if (!typename.startsWith(projectPackageName)) {
+        TypeVersions.reloaded(typename, encodedTimestamp);
+        if (!projectPackages.contains(typename)) {
             log.trace("This class is not in the application package, nothing to do");
+            ClassFileBytes.remove(typename);
             return;
         }
         if (typename.contains("$$EnhancerBy") || typename.contains("$$FastClassBy")) {
             log.trace("This is a CGLIB proxy, nothing to do");
+            ClassFileBytes.remove(typename);
             return;
         }
         jHipsterReloaderThread.reloadEvent(typename, clazz);
     }
 
+    /**
+     * Called when the class file of a loaded class has been deleted.
+     */
+    public static void deleteEvent(String typename, Class<?> clazz) {
+        TypeVersions.deleted(typename);
+        ClassFileBytes.remove(typename);
+        if (jHipsterReloaderThread != null) {
+            jHipsterReloaderThread.deleteEvent(typename, clazz);
+        }
+    }
+
     public static void register(ConfigurableApplicationContext ctx, Collection<Reloader> reloaders, ClassLoader classLoader) {
         jHipsterReloaderThread = new JHipsterReloaderThread(ctx, reloaders);
         JHipsterReloaderThread.register(jHipsterReloaderThread);
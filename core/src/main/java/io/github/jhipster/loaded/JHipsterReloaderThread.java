@@ -1,226 +1,442 @@
 package io.github.jhipster.loaded;
 
+import io.github.jhipster.loaded.bytecode.ClassShape;
 import io.github.jhipster.loaded.reloader.Reloader;
+import io.github.jhipster.loaded.reloader.RemovingReloader;
+import io.github.jhipster.loaded.reloader.WaitingReloader;
+import io.github.jhipster.loaded.reloader.ReloaderGraph;
 import io.github.jhipster.loaded.reloader.type.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ConfigurableApplicationContext;
-import org.springframework.core.annotation.AnnotationUtils;
-import org.springframework.data.repository.NoRepositoryBean;
-import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Controller;
-import org.springframework.stereotype.Repository;
-import org.springframework.stereotype.Service;
-import org.springframework.util.ClassUtils;
-import org.springframework.web.bind.annotation.RestController;
-import org.springframework.data.mongodb.core.mapping.Document;
-
-import javax.persistence.Entity;
+import org.springframework.core.env.Environment;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This thread stores classes to reload, to reload them all in one batch.
+ *
+ * A batch starts once no class has been reloaded for the quiet period of the types of the pending classes,
+ * and at the latest maxDelay ms after the first class of the batch. The thread is blocked while no class
+ * is pending. The delays are defined in the application-dev.yml as follow
+ *   hotReload:
+ *     batch:
+ *       quietPeriod:
+ *         default: 50
+ *         controllers: 20
+ *         entities: 250
+ *       maxDelay: 2000
+ *       maxSize: 200
+ * where the quiet period of a type is defined with its name (entities, dtos, repositories, services, components
+ * or controllers).
+ *
+ * The events are keyed by class name: a class compiled several times before the batch is reloaded once,
+ * in its latest version. A class whose structure did not change since its previous reload (only the bodies
+ * of its methods have changed, which Spring Loaded has already swapped) is not sent to the reloaders.
+ * A batch reloads at most maxSize classes, the next classes are reloaded by the following batches.
  */
 public class JHipsterReloaderThread implements Runnable {
 
-    private static final boolean jpaPresent =
-            ClassUtils.isPresent("javax.persistence.Entity", JHipsterReloaderThread.class.getClassLoader());
+    private static Logger log = LoggerFactory.getLogger(JHipsterReloaderThread.class);
 
-    private static final boolean mongoDBPresent =
-            ClassUtils.isPresent("com.mongodb.Mongo", JHipsterReloaderThread.class.getClassLoader());
+    public static volatile boolean isStarted;
 
-    private static Logger log = LoggerFactory.getLogger(JHipsterReloaderThread.class);
+    /**
+     * The latest reload or delete event of each class, received from the Spring Loaded threads and drained
+     * by the batch thread. The events of a class received while a batch is running replace each other.
+     */
+    private final ConcurrentMap<String, ReloadEvent> events = new ConcurrentHashMap<>();
 
-    private static final Object lock = new Object();
+    /**
+     * The batch thread, woken up when an event is received.
+     */
+    private volatile Thread batchThread;
 
-    public static boolean isStarted;
+    /**
+     * Finds the reloader type of the classes from their bytecode.
+     */
+    private final ReloaderTypeClassifier reloaderTypeClassifier;
 
-    private static boolean hotReloadTriggered = false;
+    /**
+     * The default quiet period of the entities, which wait for the rest of the compilation.
+     */
+    private static final long ENTITY_QUIET_PERIOD = 250;
 
-    private static boolean isWaitingForNewClasses = false;
+    /**
+     * How long does the thread wait before running a new batch when some beans are still waiting to be reloaded.
+     */
+    private static final long RETRY_DELAY = 500;
 
-    private String domainPackageName;
-    private String dtoPackageName;
+    /**
+     * The shape of the last version of each reloaded class (see ClassShape). Only used by the batch thread.
+     */
+    private final Map<String, Long> classShapes = new HashMap<>();
 
     /**
-     * How long does the thread wait until running a new batch.
+     * The quiet period of each reloader type, in ms.
      */
-    private static final int BATCH_DELAY = 250;
+    private final Map<ReloaderType, Long> quietPeriods = new HashMap<>();
 
     /**
-     * The list of reloaders called when a spring class has been compiled
-     * and needs to be reloaded
+     * The maximum delay between the first event of a batch and the batch, in ms.
      */
-    private Collection<Reloader> reloaders;
+    private final long maxDelay;
+
+    /**
+     * The maximum number of classes reloaded or deleted by a batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * When the next batch starts, or 0 if no batch is scheduled. Only used by the batch thread.
+     */
+    private long batchTime;
 
     /**
-     * Stores the Spring controllers reloaded in the batch.
+     * When the first event of the next batch has been received.
      */
-    private List<Class> controllers = new ArrayList<>();
+    private long firstEventTime;
 
     /**
-     * Stores the Spring services reloaded in the batch.
+     * The list of reloaders called when a spring class has been compiled
+     * and needs to be reloaded
      */
-    private List<Class> services = new ArrayList<>();
+    private Collection<Reloader> reloaders;
 
     /**
-     * Stores the Spring repositories reloaded in the batch.
+     * The dependencies between the reloaders, used to run them in parallel.
      */
-    private List<Class> repositories = new ArrayList<>();
+    private final ReloaderGraph reloaderGraph;
 
     /**
-     * Stores the Spring components reloaded in the batch.
+     * Runs the reloaders during a batch.
      */
-    private List<Class> components = new ArrayList<>();
+    private final ExecutorService reloaderExecutor;
 
     /**
-     * Stores the JPA entities reloaded in the batch.
+     * Stores the classes to reload, by reloader type and class name. Only used by the batch thread.
+     * The types are reloaded in this order: entities, DTOs, repositories, services, components and controllers.
      */
-    private List<Class> entities = new ArrayList<>();
+    private final Map<ReloaderType, Map<String, Class>> classesToReload = new LinkedHashMap<>();
 
     /**
-     * Stores the DTOs reloaded in the batch.
+     * Stores the classes deleted since the last batch, by reloader type and class name.
      */
-    private List<Class> dtos = new ArrayList<>();
+    private final Map<ReloaderType, Map<String, Class>> deletedClasses = new LinkedHashMap<>();
 
     public JHipsterReloaderThread(ConfigurableApplicationContext applicationContext, Collection<Reloader> reloaders) {
         this.reloaders = reloaders;
-        domainPackageName = applicationContext.getEnvironment().getProperty("hotReload.package.domain");
-        dtoPackageName = applicationContext.getEnvironment().getProperty("hotReload.package.restdto");
+        reloaderGraph = new ReloaderGraph(reloaders);
+        Environment env = applicationContext.getEnvironment();
+        reloaderTypeClassifier = new ReloaderTypeClassifier(PackageTrie.fromProperty(env, "hotReload.package.domain"),
+                PackageTrie.fromProperty(env, "hotReload.package.restdto"));
+        long defaultQuietPeriod = env.getProperty("hotReload.batch.quietPeriod.default", Long.class, 50L);
+        maxDelay = env.getProperty("hotReload.batch.maxDelay", Long.class, 2000L);
+        maxBatchSize = env.getProperty("hotReload.batch.maxSize", Integer.class, 200);
+        int parallelism = Math.max(1, env.getProperty("hotReload.batch.parallelism", Integer.class, 3));
+        reloaderExecutor = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "jhipster-reloader-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        ReloaderType[] reloaderTypes = {EntityReloaderType.instance, RestDtoReloaderType.instance,
+                RepositoryReloaderType.instance, ServiceReloaderType.instance, ComponentReloaderType.instance,
+                ControllerReloaderType.instance};
+        for (ReloaderType reloaderType : reloaderTypes) {
+            classesToReload.put(reloaderType, new LinkedHashMap<String, Class>());
+            deletedClasses.put(reloaderType, new LinkedHashMap<String, Class>());
+            quietPeriods.put(reloaderType, env.getProperty("hotReload.batch.quietPeriod." + reloaderType.getName(),
+                    Long.class, reloaderType == EntityReloaderType.instance ? ENTITY_QUIET_PERIOD : defaultQuietPeriod));
+        }
         isStarted = true;
     }
 
+    /**
+     * Called by Spring Loaded when a class has been reloaded. This never blocks: the event replaces the previous
+     * event of the class, and is classified by the batch thread.
+     */
     public void reloadEvent(String typename, Class<?> clazz) {
-        synchronized (lock) {
-            log.trace("Hot reloading - checking if this is a Spring bean: {}", typename);
-
-            boolean startReloading = false;
-            if (AnnotationUtils.findAnnotation(clazz, Repository.class) != null ||
-                    AnnotationUtils.findAnnotation(clazz, NoRepositoryBean.class) != null ||
-                    ClassUtils.isAssignable(clazz, org.springframework.data.repository.Repository.class)) {
-                log.trace("{} is a Spring Repository", typename);
-                repositories.add(clazz);
-                startReloading = true;
-            } else if (AnnotationUtils.findAnnotation(clazz, Service.class) != null) {
-                log.trace("{} is a Spring Service", typename);
-                services.add(clazz);
-                startReloading = true;
-            } else if (AnnotationUtils.findAnnotation(clazz, Controller.class) != null ||
-                    AnnotationUtils.findAnnotation(clazz, RestController.class) != null) {
-                log.trace("{} is a Spring Controller", typename);
-                controllers.add(clazz);
-                startReloading = true;
-            } else if (AnnotationUtils.findAnnotation(clazz, Component.class) != null) {
-                log.trace("{} is a Spring Component", typename);
-                components.add(clazz);
-                startReloading = true;
-            } else if (typename.startsWith(domainPackageName)) {
-                log.trace("{} is in the JPA package, checking if it is an entity", typename);
-                if (jpaPresent && AnnotationUtils.findAnnotation(clazz, Entity.class) != null) {
-                    log.trace("{} is a JPA Entity", typename);
-                    entities.add(clazz);
-                    startReloading = true;
+        events.put(typename, new ReloadEvent(typename, clazz, false));
+        LockSupport.unpark(batchThread);
+    }
+
+    /**
+     * Called when the class file of a class has been deleted: the class will be unregistered by the reloaders
+     * in the next batch.
+     */
+    public void deleteEvent(String typename, Class<?> clazz) {
+        events.put(typename, new ReloadEvent(typename, clazz, true));
+        LockSupport.unpark(batchThread);
+    }
+
+    /**
+     * Classify the queued events, and schedule the next batch accordingly.
+     */
+    private void drainEvents() {
+        for (String typename : events.keySet()) {
+            ReloadEvent event = events.remove(typename);
+            if (event == null) {
+                continue;
+            }
+            ReloaderType reloaderType;
+            if (event.deleted) {
+                log.trace("Hot reloading - checking if this deleted class is a Spring bean: {}", event.typename);
+                classShapes.remove(event.typename);
+                reloaderType = reloaderTypeClassifier.classifyDeleted(event.typename, event.clazz);
+            } else {
+                log.trace("Hot reloading - checking if this is a Spring bean: {}", event.typename);
+                ClassLoader classLoader = event.clazz.getClassLoader();
+                // the bytes read by the watcher, the class file is only read when they are not known
+                byte[] bytes = ClassFileBytes.take(event.typename);
+                if (bytes == null) {
+                    bytes = ReloaderTypeClassifier.readClassFile(event.typename, classLoader);
                 }
-                if (mongoDBPresent && AnnotationUtils.findAnnotation(clazz, Document.class) != null) {
-                    log.trace("{} is a MongoDB Entity", typename);
-                    entities.add(clazz);
-                    startReloading = true;
+                if (bytes == null) {
+                    log.trace("The class file of {} can't be read, it is not reloaded", event.typename);
+                    continue;
                 }
-            } else if (typename.startsWith(dtoPackageName)) {
-                log.debug("{}  is a REST DTO", typename);
-                dtos.add(clazz);
-                startReloading = true;
+                if (hasSameShape(event.typename, bytes)) {
+                    log.debug("Only the method bodies of {} have changed, nothing to reload", event.typename);
+                    continue;
+                }
+                reloaderType = reloaderTypeClassifier.classify(event.typename, bytes, classLoader);
             }
 
-            if (startReloading) {
-                hotReloadTriggered = true;
-                isWaitingForNewClasses = true;
+            // only the latest version of the class is kept, its type may have changed since the previous version
+            for (Map<String, Class> classes : classesToReload.values()) {
+                classes.remove(event.typename);
+            }
+
+            if (reloaderType != null) {
+                (event.deleted ? deletedClasses : classesToReload).get(reloaderType).put(event.typename, event.clazz);
+                scheduleBatch(reloaderType, event.time);
             }
         }
     }
 
+    /**
+     * Record the shape of the new version of a class.
+     *
+     * @return true if the class has the same shape as its previous version. The first version seen of a class
+     * is always considered as changed, as the version loaded at startup is not known.
+     */
+    private boolean hasSameShape(String typename, byte[] bytes) {
+        long shape;
+        try {
+            shape = ClassShape.hash(bytes);
+        } catch (IllegalArgumentException e) {
+            classShapes.remove(typename);
+            return false;
+        }
+        Long previousShape = classShapes.put(typename, shape);
+        return previousShape != null && previousShape == shape;
+    }
+
+    /**
+     * Postpone the next batch until the quiet period of the type has elapsed, without exceeding
+     * the maximum delay since the first event of the batch.
+     */
+    private void scheduleBatch(ReloaderType reloaderType, long eventTime) {
+        if (batchTime == 0) {
+            firstEventTime = eventTime;
+        }
+        batchTime = Math.min(Math.max(batchTime, eventTime + quietPeriods.get(reloaderType)), firstEventTime + maxDelay);
+    }
+
     public void run() {
+        batchThread = Thread.currentThread();
         while (isStarted) {
-            try {
-                Thread.sleep(BATCH_DELAY);
-                if (hotReloadTriggered) {
-                    if (isWaitingForNewClasses) {
-                        log.info("Batch reload has been triggered, waiting for new classes for {} ms", BATCH_DELAY);
-                        isWaitingForNewClasses = false;
-                    } else {
-                        hotReloadTriggered = batchReload();
-                    }
-                } else {
+            awaitBatch();
+            if (!isStarted) {
+                return;
+            }
+            if (batchReload() && batchTime == 0) {
+                // some beans are still waiting for their dependencies
+                firstEventTime = System.currentTimeMillis();
+                batchTime = firstEventTime + RETRY_DELAY;
+            }
+        }
+    }
+
+    /**
+     * Block until the next batch must start: while no batch is scheduled, then until its quiet period has elapsed.
+     * The events received meanwhile are drained each time the thread is woken up. While no batch is scheduled,
+     * the thread also wakes up to expire the waits of the beans missing a dependency.
+     */
+    private void awaitBatch() {
+        while (isStarted) {
+            drainEvents();
+            if (batchTime == 0) {
+                long nextExpiry = getNextExpiry();
+                if (nextExpiry == 0) {
                     log.trace("Waiting for batch reload");
+                    LockSupport.park(this);
+                } else if (nextExpiry <= System.currentTimeMillis()) {
+                    expireWaits();
+                } else {
+                    log.trace("Waiting for batch reload, or until the wait of a bean expires");
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(nextExpiry - System.currentTimeMillis()));
                 }
-            } catch (InterruptedException e) {
-                log.error("JHipsterReloaderThread was awaken", e);
+                continue;
             }
+            long delay = batchTime - System.currentTimeMillis();
+            if (delay <= 0) {
+                batchTime = 0;
+                return;
+            }
+            log.trace("Batch reload has been triggered, waiting for new classes for {} ms", delay);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delay));
         }
     }
 
-    private boolean batchReload() {
-        boolean hasBeansToReload = false;
-        synchronized (lock) {
-            log.info("Batch reload in progress...");
-
-            for (Reloader reloader : reloaders) {
-                boolean reload = false;
-                reloader.prepare();
-
-                // reload entities
-                if (reloader.supports(EntityReloaderType.class) && !entities.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, EntityReloaderType.instance, entities);
-                }
-                // reload dtos
-                if (reloader.supports(RestDtoReloaderType.class) && !dtos.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, RestDtoReloaderType.instance, dtos);
-                }
-                // reload repositories
-                if (reloader.supports(RepositoryReloaderType.class) && !repositories.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, RepositoryReloaderType.instance, repositories);
-                }
-                // reload services
-                if (reloader.supports(ServiceReloaderType.class) && !services.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, ServiceReloaderType.instance, services);
-                }
-                // reload components
-                if (reloader.supports(ComponentReloaderType.class) && !components.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, ComponentReloaderType.instance, components);
-                }
-                // reload controllers
-                if (reloader.supports(ControllerReloaderType.class) && !controllers.isEmpty()) {
-                    reload = true;
-                    addSpringBeans(reloader, ControllerReloaderType.instance, controllers);
+    /**
+     * @return when the next wait of a bean expires, in ms, or 0 if no bean is waiting
+     */
+    private long getNextExpiry() {
+        long nextExpiry = 0;
+        for (Reloader reloader : reloaders) {
+            if (reloader instanceof WaitingReloader) {
+                long expiry = ((WaitingReloader) reloader).getNextExpiry();
+                if (expiry != 0 && (nextExpiry == 0 || expiry < nextExpiry)) {
+                    nextExpiry = expiry;
                 }
+            }
+        }
+        return nextExpiry;
+    }
+
+    private void expireWaits() {
+        for (Reloader reloader : reloaders) {
+            if (reloader instanceof WaitingReloader) {
+                ((WaitingReloader) reloader).expireWaits();
+            }
+        }
+    }
 
-                // Reload the spring beans
-                if (reload || reloader.hasBeansToReload()) {
-                    reloader.reload();
+    /**
+     * Run a batch with at most maxBatchSize of the classes drained so far, the next batch being scheduled
+     * right away for the remaining classes. The events received during the batch wait for the next one.
+     *
+     * The reloaders run in parallel, each one after the reloaders it depends on (see ReloadAfter).
+     */
+    private boolean batchReload() {
+        final Map<ReloaderType, List<Class>> batchDeletedClasses = new LinkedHashMap<>();
+        final Map<ReloaderType, List<Class>> batchClassesToReload = new LinkedHashMap<>();
+        int batchSize = takeClasses(deletedClasses, batchDeletedClasses, 0);
+        batchSize = takeClasses(classesToReload, batchClassesToReload, batchSize);
+        int remainingClasses = countClasses(deletedClasses) + countClasses(classesToReload);
+
+        final AtomicBoolean hasBeansToReload = new AtomicBoolean();
+        long batchStart = System.currentTimeMillis();
+        if (remainingClasses > 0) {
+            log.info("Batch reload of {} classes in progress, {} ms after the first change, {} classes remaining...",
+                    batchSize, batchStart - firstEventTime, remainingClasses);
+            // the remaining classes are reloaded by the next batch, as soon as this one is done
+            batchTime = batchStart;
+        } else {
+            log.info("Batch reload of {} classes in progress, {} ms after the first change...", batchSize,
+                    batchStart - firstEventTime);
+        }
+
+        try {
+            reloaderGraph.execute(reloaderExecutor, new ReloaderGraph.ReloaderTask() {
+                @Override
+                public void run(Reloader reloader) {
+                    if (reload(reloader, batchDeletedClasses, batchClassesToReload)) {
+                        hasBeansToReload.set(true);
+                    }
                 }
+            });
+        } catch (InterruptedException e) {
+            log.debug("The batch reload has been interrupted");
+            Thread.currentThread().interrupt();
+        }
+        log.debug("Batch reload done in {} ms", System.currentTimeMillis() - batchStart);
+
+        return hasBeansToReload.get();
+    }
+
+    /**
+     * Move the pending classes to the batch, in the order of the reloader types, until the batch is full.
+     *
+     * @return the size of the batch
+     */
+    private int takeClasses(Map<ReloaderType, Map<String, Class>> pendingClasses,
+                            Map<ReloaderType, List<Class>> batchClasses, int batchSize) {
+        for (Map.Entry<ReloaderType, Map<String, Class>> entry : pendingClasses.entrySet()) {
+            List<Class> classes = new ArrayList<>();
+            for (Iterator<Class> it = entry.getValue().values().iterator(); it.hasNext() && batchSize < maxBatchSize; ) {
+                classes.add(it.next());
+                it.remove();
+                batchSize++;
+            }
+            batchClasses.put(entry.getKey(), classes);
+        }
+        return batchSize;
+    }
 
-                if (reloader.hasBeansToReload()) {
-                    hasBeansToReload = true;
+    private static int countClasses(Map<ReloaderType, Map<String, Class>> pendingClasses) {
+        int count = 0;
+        for (Map<String, Class> classes : pendingClasses.values()) {
+            count += classes.size();
+        }
+        return count;
+    }
+
+    /**
+     * Send the deleted and reloaded classes of the batch to a reloader.
+     *
+     * @return true if the reloader still has beans waiting to be reloaded
+     */
+    private boolean reload(Reloader reloader, Map<ReloaderType, List<Class>> deletedClasses,
+                           Map<ReloaderType, List<Class>> classesToReload) {
+        boolean reload = false;
+        reloader.prepare();
+
+        // unregister the deleted classes first, if the reloader is able to
+        if (reloader instanceof RemovingReloader) {
+            for (Map.Entry<ReloaderType, List<Class>> entry : deletedClasses.entrySet()) {
+                if (reloader.supports(entry.getKey().getClass()) && !entry.getValue().isEmpty()) {
+                    removeSpringBeans((RemovingReloader) reloader, entry.getKey(), entry.getValue());
                 }
             }
+        }
 
-            // clear all lists
-            entities.clear();
-            dtos.clear();
-            repositories.clear();
-            services.clear();
-            components.clear();
-            controllers.clear();
+        // reload entities, dtos, repositories, services, components and controllers
+        for (Map.Entry<ReloaderType, List<Class>> entry : classesToReload.entrySet()) {
+            if (reloader.supports(entry.getKey().getClass()) && !entry.getValue().isEmpty()) {
+                reload = true;
+                addSpringBeans(reloader, entry.getKey(), entry.getValue());
+            }
         }
 
-        return hasBeansToReload;
+        // Reload the spring beans
+        if (reload || reloader.hasBeansToReload()) {
+            reloader.reload();
+        }
+
+        return reloader.hasBeansToReload();
     }
 
     private void addSpringBeans(Reloader reloader, ReloaderType type, Collection<Class> classes) {
@@ -230,10 +446,15 @@ public class JHipsterReloaderThread implements Runnable {
         }
     }
 
+    private void removeSpringBeans(RemovingReloader reloader, ReloaderType type, Collection<Class> classes) {
+        log.debug("There are {} Spring {} deleted, removing them", classes.size(), type.getName());
+        reloader.removeBeans(classes, type.getClass());
+    }
+
     /**
      * Register the thread and starts it.
      */
-    public static void register(JHipsterReloaderThread jHipsterReloaderThread) {
+    public static void register(final JHipsterReloaderThread jHipsterReloaderThread) {
         try {
             final Thread thread = new Thread(jHipsterReloaderThread);
             thread.setDaemon(true);
@@ -242,6 +463,8 @@ public class JHipsterReloaderThread implements Runnable {
             Runtime.getRuntime().addShutdownHook(new Thread() {
                 public void run() {
                     JHipsterReloaderThread.isStarted = false;
+                    LockSupport.unpark(thread);
+                    jHipsterReloaderThread.reloaderExecutor.shutdown();
                     try {
                         thread.join();
                     } catch (InterruptedException e) {
@@ -253,4 +476,21 @@ public class JHipsterReloaderThread implements Runnable {
             log.error("Failed to start the reloader thread. Classes will not be reloaded correctly.", e);
         }
     }
+
+    /**
+     * A class reloaded or deleted, waiting to be classified by the batch thread.
+     */
+    private static class ReloadEvent {
+
+        private final String typename;
+        private final Class<?> clazz;
+        private final boolean deleted;
+        private final long time = System.currentTimeMillis();
+
+        private ReloadEvent(String typename, Class<?> clazz, boolean deleted) {
+            this.typename = typename;
+            this.clazz = clazz;
+            this.deleted = deleted;
+        }
+    }
 }
@@ -0,0 +1,45 @@
+package io.github.jhipster.loaded;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Spring Loaded version stamps of the reloaded types.
+ *
+ * A type which has never been reloaded has no version stamp: its version is the one loaded at startup.
+ */
+public final class TypeVersions {
+
+    private static final ConcurrentMap<String, String> versions = new ConcurrentHashMap<>();
+
+    private TypeVersions() {
+    }
+
+    /**
+     * @param typename the name of the type
+     * @return the version stamp of the last reloaded version of the type, or null if it has never been reloaded
+     */
+    public static String getVersion(String typename) {
+        return versions.get(typename);
+    }
+
+    /**
+     * @param clazz a class
+     * @return the version stamps of the class and of its super classes, which change when one of them is reloaded
+     */
+    public static String getHierarchyVersion(Class<?> clazz) {
+        StringBuilder version = new StringBuilder();
+        for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+            version.append(versions.get(type.getName())).append('/');
+        }
+        return version.toString();
+    }
+
+    static void reloaded(String typename, String versionstamp) {
+        versions.put(typename, versionstamp);
+    }
+
+    static void deleted(String typename) {
+        versions.remove(typename);
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.jhipster.loaded.bytecode;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The structure of a class read from its class file: its name, its super class, its interfaces,
+ * its outer class and its annotations.
+ *
+ * Only the constant pool and the class attributes are read, the fields and the methods are skipped:
+ * this is enough to order the new classes by their dependencies before they are defined, and to classify
+ * them without loading them. The names are binary names, with dots.
+ */
+public class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private final int access;
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces;
+    private final String outerName;
+    private final List<String> annotations;
+
+    private ClassFileInfo(int access, String name, String superName, List<String> interfaces, String outerName,
+                          List<String> annotations) {
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.outerName = outerName;
+        this.annotations = annotations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name of the super class, or null for java.lang.Object
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * @return the name of the class declaring this nested, local or anonymous class, or null for a top level class
+     */
+    public String getOuterName() {
+        return outerName;
+    }
+
+    /**
+     * @return the names of the annotations of the class which are visible at runtime
+     */
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (access & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * @return the classes which must be defined before this class: its super class, its interfaces
+     * and its outer class
+     */
+    public List<String> getDependencies() {
+        List<String> dependencies = new ArrayList<>(interfaces.size() + 2);
+        if (superName != null) {
+            dependencies.add(superName);
+        }
+        dependencies.addAll(interfaces);
+        if (outerName != null) {
+            dependencies.add(outerName);
+        }
+        return dependencies;
+    }
+
+    /**
+     * @param bytes the content of a class file
+     * @return the structure of the class
+     * @throws IllegalArgumentException if the bytes are not a valid class file
+     */
+    public static ClassFileInfo parse(byte[] bytes) {
+        try {
+            return parse(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    private static ClassFileInfo parse(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        // minor and major versions
+        buffer.position(buffer.position() + 4);
+
+        ConstantPool constantPool = new ConstantPool(buffer);
+
+        int access = buffer.getShort() & 0xFFFF;
+        String name = constantPool.getClassName(buffer.getShort() & 0xFFFF);
+        String superName = constantPool.getClassName(buffer.getShort() & 0xFFFF);
+        int interfaceCount = buffer.getShort() & 0xFFFF;
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(constantPool.getClassName(buffer.getShort() & 0xFFFF));
+        }
+
+        // fields and methods
+        skipMembers(buffer);
+        skipMembers(buffer);
+
+        String outerName = null;
+        List<String> annotations = new ArrayList<>();
+        int attributeCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = constantPool.getUtf8(buffer.getShort() & 0xFFFF);
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if ("InnerClasses".equals(attributeName)) {
+                int classCount = buffer.getShort() & 0xFFFF;
+                for (int j = 0; j < classCount; j++) {
+                    int innerIndex = buffer.getShort() & 0xFFFF;
+                    int outerIndex = buffer.getShort() & 0xFFFF;
+                    // inner name and access flags
+                    buffer.getInt();
+                    if (outerIndex != 0 && name.equals(constantPool.getClassName(innerIndex))) {
+                        outerName = constantPool.getClassName(outerIndex);
+                    }
+                }
+            } else if ("EnclosingMethod".equals(attributeName) && outerName == null) {
+                outerName = constantPool.getClassName(buffer.getShort() & 0xFFFF);
+            } else if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+                int annotationCount = buffer.getShort() & 0xFFFF;
+                for (int j = 0; j < annotationCount; j++) {
+                    annotations.add(readAnnotation(buffer, constantPool));
+                }
+            }
+            buffer.position(end);
+        }
+        return new ClassFileInfo(access, name, superName, Collections.unmodifiableList(interfaces), outerName,
+                Collections.unmodifiableList(annotations));
+    }
+
+    /**
+     * Read an annotation and skip its values.
+     *
+     * @return the name of the annotation type
+     */
+    private static String readAnnotation(ByteBuffer buffer, ConstantPool constantPool) {
+        String descriptor = constantPool.getUtf8(buffer.getShort() & 0xFFFF);
+        int valueCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < valueCount; i++) {
+            // element name
+            buffer.getShort();
+            skipElementValue(buffer, constantPool);
+        }
+        // the descriptor of a class type is "Lpackage/Name;"
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static void skipElementValue(ByteBuffer buffer, ConstantPool constantPool) {
+        int tag = buffer.get();
+        switch (tag) {
+            case 'e':
+                // enum type and constant name
+                buffer.getInt();
+                break;
+            case '@':
+                readAnnotation(buffer, constantPool);
+                break;
+            case '[':
+                int valueCount = buffer.getShort() & 0xFFFF;
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue(buffer, constantPool);
+                }
+                break;
+            default:
+                // constant or class
+                buffer.getShort();
+        }
+    }
+
+    private static void skipMembers(ByteBuffer buffer) {
+        int memberCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < memberCount; i++) {
+            // access flags, name and descriptor
+            buffer.position(buffer.position() + 6);
+            int attributeCount = buffer.getShort() & 0xFFFF;
+            for (int j = 0; j < attributeCount; j++) {
+                buffer.getShort();
+                int length = buffer.getInt();
+                buffer.position(buffer.position() + length);
+            }
+        }
+    }
+}
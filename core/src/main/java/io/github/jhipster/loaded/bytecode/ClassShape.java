@@ -0,0 +1,396 @@
+package io.github.jhipster.loaded.bytecode;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Computes a hash of the structure of a class: everything but the bodies of its methods.
+ *
+ * The hash covers the class declaration (access, super class, interfaces, generic signature, annotations),
+ * the fields (access, name, type, signature, constant value, annotations) and the methods (access, name,
+ * descriptor, signature, exceptions, annotations, parameter annotations, default value). The constant pool
+ * indexes are resolved, as the constant pool changes with the method bodies.
+ *
+ * The synthetic members (lambda bodies, accessors, bridges) and the attributes describing the method bodies
+ * (Code, InnerClasses, EnclosingMethod, BootstrapMethods, SourceFile) are ignored: two versions of a class which
+ * only differ by their method bodies have the same shape.
+ *
+ * The static state of a class is hashed separately: the layout of its static fields and the bytecode of its
+ * static initializer, to know if the static initializer must be run again.
+ */
+public final class ClassShape {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int TABLESWITCH = 0xaa;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int WIDE = 0xc4;
+    private static final int IINC = 0x84;
+
+    /**
+     * The length of the operands of each opcode, or -1 for the switches and wide, -2 for one constant pool index
+     * on one byte (ldc), -3 for a constant pool index on two bytes followed by the given number of bytes - 3.
+     */
+    private static final int[] OPERAND_LENGTHS = new int[256];
+
+    static {
+        for (int opcode = 0; opcode < 256; opcode++) {
+            if (opcode == 0x10 || (opcode >= 0x15 && opcode <= 0x19) || (opcode >= 0x36 && opcode <= 0x3a) ||
+                    opcode == 0xa9 || opcode == 0xbc) {
+                // bipush, loads, stores, ret, newarray
+                OPERAND_LENGTHS[opcode] = 1;
+            } else if (opcode == 0x11 || opcode == IINC || (opcode >= 0x99 && opcode <= 0xa8) ||
+                    opcode == 0xc6 || opcode == 0xc7) {
+                // sipush, iinc, branches
+                OPERAND_LENGTHS[opcode] = 2;
+            } else if (opcode == 0xc8 || opcode == 0xc9) {
+                // goto_w, jsr_w
+                OPERAND_LENGTHS[opcode] = 4;
+            } else if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH || opcode == WIDE) {
+                OPERAND_LENGTHS[opcode] = -1;
+            } else if (opcode == 0x12) {
+                // ldc
+                OPERAND_LENGTHS[opcode] = -2;
+            } else if (opcode == 0x13 || opcode == 0x14 || (opcode >= 0xb2 && opcode <= 0xb8) || opcode == 0xbb ||
+                    opcode == 0xbd || opcode == 0xc0 || opcode == 0xc1) {
+                // ldc_w, ldc2_w, field and method instructions, new, anewarray, checkcast, instanceof
+                OPERAND_LENGTHS[opcode] = -3;
+            } else if (opcode == 0xb9 || opcode == 0xba) {
+                // invokeinterface, invokedynamic
+                OPERAND_LENGTHS[opcode] = -5;
+            } else if (opcode == 0xc5) {
+                // multianewarray
+                OPERAND_LENGTHS[opcode] = -4;
+            }
+        }
+    }
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ClassShape() {
+    }
+
+    /**
+     * @param bytes the content of a class file
+     * @return the hash of the structure of the class
+     * @throws IllegalArgumentException if the bytes are not a valid class file
+     */
+    public static long hash(byte[] bytes) {
+        try {
+            return hash(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    private static long hash(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        // minor and major versions
+        buffer.position(buffer.position() + 4);
+        ConstantPool constantPool = new ConstantPool(buffer);
+
+        Hasher hasher = new Hasher();
+        hasher.update(buffer.getShort() & 0xFFFF);
+        hasher.update(constantPool.getClassName(buffer.getShort() & 0xFFFF));
+        hasher.update(constantPool.getClassName(buffer.getShort() & 0xFFFF));
+        int interfaceCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < interfaceCount; i++) {
+            hasher.update(constantPool.getClassName(buffer.getShort() & 0xFFFF));
+        }
+
+        // the members are combined in any order, a member moved in the source does not change the shape
+        hasher.update(hashMembers(buffer, constantPool));
+        hasher.update(hashMembers(buffer, constantPool));
+
+        hashAttributes(buffer, constantPool, hasher);
+        return hasher.value;
+    }
+
+    /**
+     * @param bytes the content of a class file
+     * @return the hash of the static fields and of the static initializer of the class
+     * @throws IllegalArgumentException if the bytes are not a valid class file
+     */
+    public static long hashStaticState(byte[] bytes) {
+        try {
+            return hashStaticState(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file", e);
+        }
+    }
+
+    private static long hashStaticState(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        buffer.position(buffer.position() + 4);
+        ConstantPool constantPool = new ConstantPool(buffer);
+
+        // access, this class and super class
+        buffer.position(buffer.position() + 6);
+        int interfaceCount = buffer.getShort() & 0xFFFF;
+        buffer.position(buffer.position() + 2 * interfaceCount);
+
+        Hasher hasher = new Hasher();
+        long staticFieldsHash = 0;
+        int fieldCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < fieldCount; i++) {
+            int access = buffer.getShort() & 0xFFFF;
+            Hasher fieldHasher = new Hasher();
+            fieldHasher.update(access);
+            fieldHasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+            fieldHasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+            hashAttributes(buffer, constantPool, fieldHasher);
+            if ((access & ACC_STATIC) != 0) {
+                staticFieldsHash += fieldHasher.value;
+            }
+        }
+        hasher.update(staticFieldsHash);
+
+        int methodCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < methodCount; i++) {
+            buffer.getShort();
+            String name = constantPool.getUtf8(buffer.getShort() & 0xFFFF);
+            buffer.getShort();
+            int attributeCount = buffer.getShort() & 0xFFFF;
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = constantPool.getUtf8(buffer.getShort() & 0xFFFF);
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if ("<clinit>".equals(name) && "Code".equals(attributeName)) {
+                    hashCode(buffer, constantPool, hasher);
+                }
+                buffer.position(end);
+            }
+        }
+        return hasher.value;
+    }
+
+    /**
+     * Hash a Code attribute, resolving the constant pool indexes of the instructions and of the exception table.
+     * The debug attributes of the code (line numbers, local variables) are ignored.
+     */
+    private static void hashCode(ByteBuffer buffer, ConstantPool constantPool, Hasher hasher) {
+        // max stack and max locals
+        hasher.update(buffer.getInt());
+        int codeLength = buffer.getInt();
+        int codeStart = buffer.position();
+        int codeEnd = codeStart + codeLength;
+        while (buffer.position() < codeEnd) {
+            int opcode = buffer.get() & 0xFF;
+            hasher.update(opcode);
+            int operandLength = OPERAND_LENGTHS[opcode];
+            switch (operandLength) {
+                case -1:
+                    hashVariableInstruction(buffer, opcode, codeStart, hasher);
+                    break;
+                case -2:
+                    hasher.update(constantPool.getConstant(buffer.get() & 0xFF));
+                    break;
+                case -3:
+                case -4:
+                case -5:
+                    hasher.update(constantPool.getConstant(buffer.getShort() & 0xFFFF));
+                    for (int i = 0; i < -operandLength - 3; i++) {
+                        hasher.update(buffer.get());
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < operandLength; i++) {
+                        hasher.update(buffer.get());
+                    }
+            }
+        }
+        int exceptionCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < exceptionCount; i++) {
+            // start, end and handler
+            hasher.update(buffer.getInt());
+            hasher.update(buffer.getShort());
+            hasher.update(constantPool.getConstant(buffer.getShort() & 0xFFFF));
+        }
+    }
+
+    private static void hashVariableInstruction(ByteBuffer buffer, int opcode, int codeStart, Hasher hasher) {
+        if (opcode == WIDE) {
+            int widenedOpcode = buffer.get() & 0xFF;
+            hasher.update(widenedOpcode);
+            int operandLength = widenedOpcode == IINC ? 4 : 2;
+            for (int i = 0; i < operandLength; i++) {
+                hasher.update(buffer.get());
+            }
+            return;
+        }
+        // the operands of the switches are aligned on 4 bytes from the start of the code
+        while ((buffer.position() - codeStart) % 4 != 0) {
+            buffer.get();
+        }
+        // default offset
+        hasher.update(buffer.getInt());
+        int entryCount;
+        if (opcode == TABLESWITCH) {
+            int low = buffer.getInt();
+            int high = buffer.getInt();
+            hasher.update(low);
+            hasher.update(high);
+            entryCount = high - low + 1;
+        } else {
+            entryCount = buffer.getInt() * 2;
+            hasher.update(entryCount);
+        }
+        for (int i = 0; i < entryCount; i++) {
+            hasher.update(buffer.getInt());
+        }
+    }
+
+    private static long hashMembers(ByteBuffer buffer, ConstantPool constantPool) {
+        long membersHash = 0;
+        int memberCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < memberCount; i++) {
+            int access = buffer.getShort() & 0xFFFF;
+            Hasher hasher = new Hasher();
+            hasher.update(access);
+            hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+            hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+            hashAttributes(buffer, constantPool, hasher);
+            if ((access & ACC_SYNTHETIC) == 0) {
+                membersHash += hasher.value;
+            }
+        }
+        return membersHash;
+    }
+
+    private static void hashAttributes(ByteBuffer buffer, ConstantPool constantPool, Hasher hasher) {
+        int attributeCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = constantPool.getUtf8(buffer.getShort() & 0xFFFF);
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            switch (attributeName) {
+                case "Code":
+                case "InnerClasses":
+                case "EnclosingMethod":
+                case "BootstrapMethods":
+                case "SourceFile":
+                case "SourceDebugExtension":
+                case "NestHost":
+                case "NestMembers":
+                    break;
+                case "Signature":
+                    hasher.update(attributeName);
+                    hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+                    break;
+                case "ConstantValue":
+                    hasher.update(attributeName);
+                    hasher.update(constantPool.getConstant(buffer.getShort() & 0xFFFF));
+                    break;
+                case "Exceptions":
+                    hasher.update(attributeName);
+                    int exceptionCount = buffer.getShort() & 0xFFFF;
+                    for (int j = 0; j < exceptionCount; j++) {
+                        hasher.update(constantPool.getClassName(buffer.getShort() & 0xFFFF));
+                    }
+                    break;
+                case "RuntimeVisibleAnnotations":
+                case "RuntimeInvisibleAnnotations":
+                    hasher.update(attributeName);
+                    hashAnnotations(buffer, constantPool, hasher);
+                    break;
+                case "RuntimeVisibleParameterAnnotations":
+                case "RuntimeInvisibleParameterAnnotations":
+                    hasher.update(attributeName);
+                    int parameterCount = buffer.get() & 0xFF;
+                    for (int j = 0; j < parameterCount; j++) {
+                        hashAnnotations(buffer, constantPool, hasher);
+                    }
+                    break;
+                case "AnnotationDefault":
+                    hasher.update(attributeName);
+                    hashElementValue(buffer, constantPool, hasher);
+                    break;
+                default:
+                    // Deprecated, Synthetic, MethodParameters, type annotations...
+                    hasher.update(attributeName);
+                    hasher.update(length);
+            }
+            buffer.position(end);
+        }
+    }
+
+    private static void hashAnnotations(ByteBuffer buffer, ConstantPool constantPool, Hasher hasher) {
+        int annotationCount = buffer.getShort() & 0xFFFF;
+        hasher.update(annotationCount);
+        for (int i = 0; i < annotationCount; i++) {
+            hashAnnotation(buffer, constantPool, hasher);
+        }
+    }
+
+    private static void hashAnnotation(ByteBuffer buffer, ConstantPool constantPool, Hasher hasher) {
+        hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+        int valueCount = buffer.getShort() & 0xFFFF;
+        hasher.update(valueCount);
+        for (int i = 0; i < valueCount; i++) {
+            hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+            hashElementValue(buffer, constantPool, hasher);
+        }
+    }
+
+    private static void hashElementValue(ByteBuffer buffer, ConstantPool constantPool, Hasher hasher) {
+        int tag = buffer.get();
+        hasher.update(tag);
+        switch (tag) {
+            case 'e':
+                hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+                hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+                break;
+            case 'c':
+                hasher.update(constantPool.getUtf8(buffer.getShort() & 0xFFFF));
+                break;
+            case '@':
+                hashAnnotation(buffer, constantPool, hasher);
+                break;
+            case '[':
+                int valueCount = buffer.getShort() & 0xFFFF;
+                hasher.update(valueCount);
+                for (int i = 0; i < valueCount; i++) {
+                    hashElementValue(buffer, constantPool, hasher);
+                }
+                break;
+            default:
+                hasher.update(constantPool.getConstant(buffer.getShort() & 0xFFFF));
+        }
+    }
+
+    /**
+     * A 64-bit FNV-1a hash.
+     */
+    private static class Hasher {
+
+        private long value = FNV_OFFSET_BASIS;
+
+        private void update(long data) {
+            for (int i = 0; i < 8; i++) {
+                value = (value ^ (data & 0xFF)) * FNV_PRIME;
+                data >>>= 8;
+            }
+        }
+
+        private void update(String data) {
+            if (data == null) {
+                update(-1L);
+                return;
+            }
+            for (int i = 0; i < data.length(); i++) {
+                char c = data.charAt(i);
+                value = (value ^ (c & 0xFF)) * FNV_PRIME;
+                value = (value ^ (c >>> 8)) * FNV_PRIME;
+            }
+            update((long) data.length());
+        }
+    }
+}
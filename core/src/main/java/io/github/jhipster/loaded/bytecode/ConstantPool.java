@@ -0,0 +1,168 @@
+package io.github.jhipster.loaded.bytecode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The constant pool of a class file. The entries are kept as offsets in the buffer,
+ * only the strings which are used are decoded.
+ */
+class ConstantPool {
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final ByteBuffer buffer;
+    private final int[] offsets;
+    private final byte[] tags;
+    private final String[] strings;
+
+    /**
+     * Read the constant pool, the buffer being positioned on the constant pool count.
+     */
+    ConstantPool(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int count = buffer.getShort() & 0xFFFF;
+        offsets = new int[count];
+        tags = new byte[count];
+        strings = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = buffer.get();
+            tags[i] = (byte) tag;
+            offsets[i] = buffer.position();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    int length = buffer.getShort() & 0xFFFF;
+                    buffer.position(buffer.position() + length);
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    buffer.position(buffer.position() + 2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    buffer.position(buffer.position() + 3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    buffer.position(buffer.position() + 4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    buffer.position(buffer.position() + 8);
+                    // these constants take two entries
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * @return the string of a CONSTANT_Utf8 entry
+     */
+    String getUtf8(int index) {
+        if (strings[index] == null) {
+            int length = buffer.getShort(offsets[index]) & 0xFFFF;
+            strings[index] = decode(offsets[index] + 2, length);
+        }
+        return strings[index];
+    }
+
+    /**
+     * @return the binary name of a CONSTANT_Class entry, or null for the index 0
+     */
+    String getClassName(int index) {
+        if (index == 0) {
+            return null;
+        }
+        return getUtf8(buffer.getShort(offsets[index]) & 0xFFFF).replace('/', '.');
+    }
+
+    /**
+     * @return the value of a constant, as a string which does not depend on the constant pool indexes
+     */
+    String getConstant(int index) {
+        if (index == 0) {
+            return "#0";
+        }
+        int offset = offsets[index];
+        switch (tags[index]) {
+            case CONSTANT_CLASS:
+                return "C" + getClassName(index);
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+                return "R" + getClassName(buffer.getShort(offset) & 0xFFFF) + "." +
+                        getConstant(buffer.getShort(offset + 2) & 0xFFFF);
+            case CONSTANT_NAME_AND_TYPE:
+                return getUtf8(buffer.getShort(offset) & 0xFFFF) + ":" + getUtf8(buffer.getShort(offset + 2) & 0xFFFF);
+            case CONSTANT_METHOD_TYPE:
+                return "T" + getUtf8(buffer.getShort(offset) & 0xFFFF);
+            case CONSTANT_METHOD_HANDLE:
+                return "H" + buffer.get(offset) + getConstant(buffer.getShort(offset + 1) & 0xFFFF);
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                // the bootstrap method index is kept, the bootstrap methods are not resolved
+                return "Y" + (buffer.getShort(offset) & 0xFFFF) + getConstant(buffer.getShort(offset + 2) & 0xFFFF);
+            case CONSTANT_INTEGER:
+                return "I" + buffer.getInt(offset);
+            case CONSTANT_FLOAT:
+                return "F" + buffer.getFloat(offset);
+            case CONSTANT_LONG:
+                return "J" + buffer.getLong(offset);
+            case CONSTANT_DOUBLE:
+                return "D" + buffer.getDouble(offset);
+            case CONSTANT_STRING:
+                return "S" + getUtf8(buffer.getShort(offset) & 0xFFFF);
+            case CONSTANT_UTF8:
+                return "U" + getUtf8(index);
+            default:
+                return "#" + tags[index];
+        }
+    }
+
+    /**
+     * Decode a modified UTF-8 string.
+     */
+    private String decode(int offset, int length) {
+        char[] chars = new char[length];
+        int charCount = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int b = buffer.get(offset++) & 0xFF;
+            if (b < 0x80) {
+                chars[charCount++] = (char) b;
+            } else if (b < 0xE0) {
+                chars[charCount++] = (char) (((b & 0x1F) << 6) | (buffer.get(offset++) & 0x3F));
+            } else {
+                chars[charCount++] = (char) (((b & 0x0F) << 12) | ((buffer.get(offset++) & 0x3F) << 6) |
+                        (buffer.get(offset++) & 0x3F));
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+}
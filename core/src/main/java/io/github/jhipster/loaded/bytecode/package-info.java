@@ -0,0 +1,4 @@
+/**
+ * Hot reloading class file readers.
+ */
+package io.github.jhipster.loaded.bytecode;
@@ -0,0 +1,180 @@
+package io.github.jhipster.loaded.classloader;
+
+import io.github.jhipster.loaded.bytecode.ClassFileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Defines a set of new classes at once, a whole new package for example.
+ *
+ * The classes are ordered by the super class, interface and outer class edges read from their bytecode,
+ * so a class is always defined after the classes of the set it depends on. The classes are defined
+ * level by level: the classes of a level do not depend on each other, and are defined in parallel
+ * on a bounded pool of threads.
+ */
+public class BulkClassDefiner {
+
+    private final Logger log = LoggerFactory.getLogger(BulkClassDefiner.class);
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the maximum number of classes defined at the same time
+     */
+    public BulkClassDefiner(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Defines a single class.
+     */
+    public interface Definer {
+
+        Class<?> define(String name, byte[] bytes) throws Exception;
+    }
+
+    /**
+     * @param classes the bytes of the classes to define, by class name
+     * @param definer defines each class with its class loader
+     * @return the classes which have been defined, in dependency order
+     * @throws InterruptedException if the thread has been interrupted while waiting for a level
+     */
+    public Map<String, Class<?>> define(Map<String, byte[]> classes, final Definer definer) throws InterruptedException {
+        List<List<String>> levels = getLevels(classes);
+        Map<String, Class<?>> definedClasses = new LinkedHashMap<>();
+
+        int maxLevelSize = 0;
+        for (List<String> level : levels) {
+            maxLevelSize = Math.max(maxLevelSize, level.size());
+        }
+        ExecutorService executor = null;
+        if (parallelism > 1 && maxLevelSize > 1) {
+            executor = Executors.newFixedThreadPool(Math.min(parallelism, maxLevelSize));
+        }
+        try {
+            for (List<String> level : levels) {
+                if (executor == null || level.size() == 1) {
+                    for (String name : level) {
+                        Class<?> clazz = defineClass(name, classes.get(name), definer);
+                        if (clazz != null) {
+                            definedClasses.put(name, clazz);
+                        }
+                    }
+                    continue;
+                }
+                List<Callable<Class<?>>> tasks = new ArrayList<>(level.size());
+                for (final String name : level) {
+                    final byte[] bytes = classes.get(name);
+                    tasks.add(new Callable<Class<?>>() {
+                        @Override
+                        public Class<?> call() {
+                            return defineClass(name, bytes, definer);
+                        }
+                    });
+                }
+                List<Future<Class<?>>> results = executor.invokeAll(tasks);
+                for (int i = 0; i < level.size(); i++) {
+                    try {
+                        Class<?> clazz = results.get(i).get();
+                        if (clazz != null) {
+                            definedClasses.put(level.get(i), clazz);
+                        }
+                    } catch (ExecutionException e) {
+                        log.error("Failed to define the class {}", level.get(i), e.getCause());
+                    }
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        log.debug("{} classes have been defined in {} levels", definedClasses.size(), levels.size());
+        return definedClasses;
+    }
+
+    private Class<?> defineClass(String name, byte[] bytes, Definer definer) {
+        try {
+            return definer.define(name, bytes);
+        } catch (Exception | LinkageError e) {
+            log.error("Failed to define the class {}", name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Order the classes in levels: a class depends only on classes of the previous levels.
+     * The classes which can't be parsed, or are part of a dependency cycle, are defined in the last level.
+     */
+    List<List<String>> getLevels(Map<String, byte[]> classes) {
+        // the dependencies of each class which are part of the set
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            List<String> classDependencies = new ArrayList<>();
+            try {
+                for (String dependency : ClassFileInfo.parse(entry.getValue()).getDependencies()) {
+                    if (classes.containsKey(dependency) && !dependency.equals(entry.getKey())) {
+                        classDependencies.add(dependency);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Failed to read the structure of the class {}", entry.getKey(), e);
+                classDependencies = null;
+            }
+            dependencies.put(entry.getKey(), classDependencies);
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        Set<String> ordered = new HashSet<>();
+        List<String> remaining = new ArrayList<>();
+        for (String name : classes.keySet()) {
+            if (dependencies.get(name) != null) {
+                remaining.add(name);
+            }
+        }
+        while (!remaining.isEmpty()) {
+            List<String> level = new ArrayList<>();
+            List<String> next = new ArrayList<>();
+            for (String name : remaining) {
+                if (ordered.containsAll(dependencies.get(name))) {
+                    level.add(name);
+                } else {
+                    next.add(name);
+                }
+            }
+            if (level.isEmpty()) {
+                log.warn("The classes {} have cyclic dependencies", next);
+                break;
+            }
+            ordered.addAll(level);
+            levels.add(level);
+            remaining = next;
+        }
+
+        List<String> lastLevel = new ArrayList<>(remaining);
+        for (String name : classes.keySet()) {
+            if (dependencies.get(name) == null) {
+                lastLevel.add(name);
+            }
+        }
+        // these classes may depend on each other, they are defined one at a time
+        for (String name : lastLevel) {
+            levels.add(Collections.singletonList(name));
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,260 @@
+package io.github.jhipster.loaded.classloader;
+
+import io.github.jhipster.loaded.watcher.ClassFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A generation of the class loader used to load the new classes.
+ *
+ * A generation keeps the classes it has defined which are still alive, that is which have not been deleted.
+ * The current generation holds its class loader, a retired generation only holds it with a weak reference:
+ * it is closed once its class loader has been garbage collected, that is once neither the application nor
+ * Spring Loaded refer to its classes anymore, or once all its classes have been deleted.
+ */
+public class ClassLoaderGeneration {
+
+    private final Logger log = LoggerFactory.getLogger(ClassLoaderGeneration.class);
+
+    private final int id;
+    private final long creationTime = System.currentTimeMillis();
+    private final ConcurrentMap<String, Long> liveClasses = new ConcurrentHashMap<>();
+    private final AtomicInteger definedClasses = new AtomicInteger();
+    private final ClassLoaderGenerations generations;
+    private final GenerationReference classLoaderReference;
+    private volatile GenerationClassLoader classLoader;
+    private volatile boolean retired;
+    private volatile boolean closed;
+
+    ClassLoaderGeneration(int id, List<Path> roots, ClassLoader parent, ClassLoaderGenerations generations,
+                          ReferenceQueue<ClassLoader> collectedClassLoaders) {
+        this.id = id;
+        this.generations = generations;
+        this.classLoader = new GenerationClassLoader(roots, parent, this);
+        this.classLoaderReference = new GenerationReference(classLoader, this, collectedClassLoaders);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the number of live classes defined by this generation
+     */
+    public int getClassCount() {
+        return liveClasses.size();
+    }
+
+    /**
+     * @return the number of classes defined by this generation, including the deleted ones
+     */
+    public int getDefinedClassCount() {
+        return definedClasses.get();
+    }
+
+    /**
+     * @return the size of the class files of the live classes, an approximation of the metaspace they retain
+     */
+    public long getRetainedBytes() {
+        long retainedBytes = 0;
+        for (Long size : liveClasses.values()) {
+            retainedBytes += size;
+        }
+        return retainedBytes;
+    }
+
+    /**
+     * @return the age of this generation, in ms
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - creationTime;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    public boolean isClosed() {
+        return closed || classLoaderReference.get() == null;
+    }
+
+    /**
+     * @return the class loader, or null if the generation has been closed or its class loader has been collected
+     */
+    GenerationClassLoader getClassLoader() {
+        return closed ? null : classLoaderReference.get();
+    }
+
+    ClassLoaderGenerations getGenerations() {
+        return generations;
+    }
+
+    void classDefined(String name, long size) {
+        liveClasses.put(name, size);
+        definedClasses.incrementAndGet();
+        generations.classDefined(name, this);
+    }
+
+    /**
+     * A deleted class, which is still loaded by this generation, has been created again.
+     */
+    void classRevived(String name, long size) {
+        liveClasses.put(name, size);
+        generations.classDefined(name, this);
+    }
+
+    /**
+     * Forget a deleted class, and close the generation if it was its last live class.
+     */
+    void removeClass(String name) {
+        liveClasses.remove(name);
+        if (retired && liveClasses.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Stop defining new classes with this generation: the class loader is only kept while its classes are used,
+     * and the generation is closed once it has been garbage collected. It is not closed right away, as a class
+     * may be being defined by this generation.
+     */
+    void retire() {
+        retired = true;
+        classLoader = null;
+    }
+
+    /**
+     * Release the class loader, and the entries of its classes in the generations.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            classLoader = null;
+            classLoaderReference.clear();
+        }
+        generations.generationClosed(this);
+        liveClasses.clear();
+        log.debug("The class loader generation {} has been closed after {} ms", id, getAge());
+    }
+
+    @Override
+    public String toString() {
+        return "generation " + id + " (" + getClassCount() + " classes, " + getRetainedBytes() / 1024 +
+                " KB retained, " + getAge() / 1000 + " s old" + (retired ? ", retired" : "") + ")";
+    }
+
+    /**
+     * A weak reference to the class loader of a generation, enqueued once it has been garbage collected.
+     */
+    static class GenerationReference extends WeakReference<GenerationClassLoader> {
+
+        private final ClassLoaderGeneration generation;
+
+        GenerationReference(GenerationClassLoader classLoader, ClassLoaderGeneration generation,
+                            ReferenceQueue<ClassLoader> collectedClassLoaders) {
+            super(classLoader, collectedClassLoaders);
+            this.generation = generation;
+        }
+
+        ClassLoaderGeneration getGeneration() {
+            return generation;
+        }
+    }
+
+    /**
+     * The class loader of a generation. The classes defined by the other generations are loaded by them,
+     * so a class is never defined twice.
+     *
+     * The classes are defined from the bytes read by the watcher. The classes they depend on are read from
+     * the watch folders with a single read, without the URL resource lookup of an URLClassLoader.
+     */
+    static class GenerationClassLoader extends ClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final List<Path> roots;
+        private final ClassLoaderGeneration generation;
+
+        GenerationClassLoader(List<Path> roots, ClassLoader parent, ClassLoaderGeneration generation) {
+            super(parent);
+            this.roots = roots;
+            this.generation = generation;
+        }
+
+        /**
+         * Define a class from its bytes, unless it has already been loaded. Once the generation has been retired,
+         * the new classes are defined by the current generation, so they do not keep the retired one alive.
+         */
+        Class<?> define(String name, byte[] bytes) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> clazz = findLoadedClass(name);
+                if (clazz != null) {
+                    return clazz;
+                }
+                if (!generation.isRetired()) {
+                    clazz = defineClass(name, bytes, 0, bytes.length);
+                    generation.classDefined(name, bytes.length);
+                    return clazz;
+                }
+            }
+            return generation.getGenerations().defineClass(name, bytes);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            ClassLoader ownerClassLoader = generation.getGenerations().getOwnerClassLoader(name);
+            if (ownerClassLoader != null && ownerClassLoader != this) {
+                return ownerClassLoader.loadClass(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            for (Path root : roots) {
+                Path file = root.resolve(name);
+                if (Files.isRegularFile(file)) {
+                    try {
+                        return file.toUri().toURL();
+                    } catch (MalformedURLException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            String classFileName = name.replace('.', '/') + ".class";
+            for (Path root : roots) {
+                Path classFile = root.resolve(classFileName);
+                if (Files.isRegularFile(classFile)) {
+                    try {
+                        return define(name, ClassFileReader.read(classFile));
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+            }
+            throw new ClassNotFoundException(name);
+        }
+    }
+}
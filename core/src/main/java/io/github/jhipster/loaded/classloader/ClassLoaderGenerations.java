@@ -0,0 +1,221 @@
+package io.github.jhipster.loaded.classloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Manages the generations of the class loader used to load the new classes of the watch folders.
+ *
+ * The new classes are defined by the current generation. It is rolled over once it has defined
+ * maxClasses classes or is older than maxAge: the next classes are defined by a new generation,
+ * and the retired generation is closed as soon as its class loader has been garbage collected
+ * or all its classes have been deleted.
+ *
+ * A deleted class stays loaded by its generation while it is used, by Spring Loaded for example: when it is
+ * created again, it cannot be defined by the same class loader, so the loaded class is revived and must be
+ * reloaded with its new bytes (see reviveClass).
+ *
+ * The limits are defined in the application-dev.yml as follow
+ *   hotReload:
+ *     classloader:
+ *       maxClasses: 100
+ *       maxAge: 3600000
+ */
+public class ClassLoaderGenerations {
+
+    private final Logger log = LoggerFactory.getLogger(ClassLoaderGenerations.class);
+
+    private final List<Path> roots;
+    private final ClassLoader parent;
+    private final int maxClasses;
+    private final long maxAge;
+
+    private final List<ClassLoaderGeneration> generations = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, ClassLoaderGeneration> owners = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ClassLoaderGeneration> deletedClasses = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> collectedClassLoaders = new ReferenceQueue<>();
+    private ClassLoaderGeneration current;
+    private int nextId = 1;
+
+    public ClassLoaderGenerations(List<Path> roots, ClassLoader parent, int maxClasses, long maxAge) {
+        this.roots = roots;
+        this.parent = parent;
+        this.maxClasses = maxClasses;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Define a new class with the current generation, from the bytes of its class file.
+     *
+     * @param name the name of the class
+     * @param bytes the content of the class file
+     * @return the class, which may have been defined by a previous generation
+     */
+    public Class<?> defineClass(String name, byte[] bytes) throws ClassNotFoundException {
+        closeCollectedGenerations();
+        ClassLoader ownerClassLoader = getOwnerClassLoader(name);
+        if (ownerClassLoader != null) {
+            return ownerClassLoader.loadClass(name);
+        }
+        return getCurrentClassLoader().define(name, bytes);
+    }
+
+    /**
+     * Find a class which has already been loaded, without defining it.
+     */
+    public Class<?> findLoadedClass(String name) throws ClassNotFoundException {
+        ClassLoader ownerClassLoader = getOwnerClassLoader(name);
+        if (ownerClassLoader != null) {
+            return Class.forName(name, false, ownerClassLoader);
+        }
+        return Class.forName(name, false, parent);
+    }
+
+    /**
+     * Forget a deleted class: its generation is closed if it is retired and this was its last live class.
+     */
+    public void classDeleted(String name) {
+        closeCollectedGenerations();
+        ClassLoaderGeneration owner = owners.remove(name);
+        if (owner != null) {
+            deletedClasses.put(name, owner);
+            owner.removeClass(name);
+        }
+    }
+
+    /**
+     * Find a deleted class which has been created again while it is still loaded by its generation.
+     *
+     * @param name the name of the class
+     * @param bytes the content of the new class file
+     * @return the loaded class, which must be reloaded with the new bytes, or null if the class must be defined
+     */
+    public Class<?> reviveClass(String name, byte[] bytes) {
+        closeCollectedGenerations();
+        ClassLoaderGeneration generation = deletedClasses.remove(name);
+        if (generation == null) {
+            return null;
+        }
+        ClassLoader classLoader = generation.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        try {
+            Class<?> clazz = Class.forName(name, false, classLoader);
+            generation.classRevived(name, bytes.length);
+            log.debug("The deleted class '{}' is still loaded by the class loader {}", name, generation);
+            return clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Retire the current generation: the next classes will be defined by a new generation.
+     */
+    public synchronized void rollover() {
+        if (current == null) {
+            return;
+        }
+        log.info("JHipster reload - The class loader {} has been rolled over", current);
+        current.retire();
+        current = null;
+    }
+
+    /**
+     * @return the generations which are not closed, the current one being the last
+     */
+    public List<ClassLoaderGeneration> getGenerations() {
+        closeCollectedGenerations();
+        return new ArrayList<>(generations);
+    }
+
+    /**
+     * Close all the generations.
+     */
+    public synchronized void close() {
+        for (ClassLoaderGeneration generation : generations) {
+            generation.close();
+        }
+        generations.clear();
+        owners.clear();
+        deletedClasses.clear();
+        current = null;
+    }
+
+    void classDefined(String name, ClassLoaderGeneration generation) {
+        owners.put(name, generation);
+    }
+
+    ClassLoader getOwnerClassLoader(String name) {
+        ClassLoaderGeneration owner = owners.get(name);
+        if (owner == null) {
+            return null;
+        }
+        ClassLoader classLoader = owner.getClassLoader();
+        if (classLoader == null) {
+            // the class loader has been collected, the class will be defined by the current generation
+            owners.remove(name, owner);
+        }
+        return classLoader;
+    }
+
+    /**
+     * Drop the entries of a closed generation.
+     */
+    void generationClosed(ClassLoaderGeneration generation) {
+        generations.remove(generation);
+        removeEntries(owners, generation);
+        removeEntries(deletedClasses, generation);
+        log.info("JHipster reload - The class loader {} has been closed", generation);
+    }
+
+    private void removeEntries(Map<String, ClassLoaderGeneration> classes, ClassLoaderGeneration generation) {
+        for (Iterator<ClassLoaderGeneration> it = classes.values().iterator(); it.hasNext(); ) {
+            if (it.next() == generation) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Close the retired generations whose class loader has been garbage collected.
+     */
+    private void closeCollectedGenerations() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = collectedClassLoaders.poll()) != null) {
+            ((ClassLoaderGeneration.GenerationReference) reference).getGeneration().close();
+        }
+    }
+
+    /**
+     * @return the class loader of the current generation, read with the lock held: a concurrent rollover
+     * can't release it before the caller holds it
+     */
+    private synchronized ClassLoaderGeneration.GenerationClassLoader getCurrentClassLoader() {
+        return getCurrentGeneration().getClassLoader();
+    }
+
+    private synchronized ClassLoaderGeneration getCurrentGeneration() {
+        if (current != null && (current.getDefinedClassCount() >= maxClasses || current.getAge() >= maxAge)) {
+            rollover();
+        }
+        if (current == null) {
+            current = new ClassLoaderGeneration(nextId++, roots, parent, this, collectedClassLoaders);
+            generations.add(current);
+            log.debug("The class loader generation {} has been created", current.getId());
+        }
+        return current;
+    }
+}
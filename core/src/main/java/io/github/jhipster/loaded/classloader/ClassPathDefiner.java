@@ -0,0 +1,181 @@
+package io.github.jhipster.loaded.classloader;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.SecureClassLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Defines the new classes of a watch folder which is on the class path of the application.
+ *
+ * Such a class must be defined by the class loader of the application, which would find it anyway when an
+ * existing class refers to it. It is defined directly from the bytes read by the watcher, instead of letting
+ * the class loader look up and read the class file again. As the URLClassLoader would, the package of the class
+ * is defined first, without attributes as a folder has no manifest, and the class has the protection domain
+ * of the other classes of its folder.
+ */
+public final class ClassPathDefiner {
+
+    private static final Method findLoadedClassMethod =
+            ReflectionUtils.findMethod(ClassLoader.class, "findLoadedClass", String.class);
+
+    private static final Method defineClassMethod = ReflectionUtils.findMethod(ClassLoader.class, "defineClass",
+            String.class, byte[].class, int.class, int.class, ProtectionDomain.class);
+
+    private static final Method getPackageMethod =
+            ReflectionUtils.findMethod(ClassLoader.class, "getPackage", String.class);
+
+    private static final Method definePackageMethod = ReflectionUtils.findMethod(ClassLoader.class, "definePackage",
+            String.class, String.class, String.class, String.class, String.class, String.class, String.class, URL.class);
+
+    private static final Method getProtectionDomainMethod =
+            ReflectionUtils.findMethod(SecureClassLoader.class, "getProtectionDomain", CodeSource.class);
+
+    static {
+        ReflectionUtils.makeAccessible(findLoadedClassMethod);
+        ReflectionUtils.makeAccessible(defineClassMethod);
+        ReflectionUtils.makeAccessible(getPackageMethod);
+        ReflectionUtils.makeAccessible(definePackageMethod);
+        ReflectionUtils.makeAccessible(getProtectionDomainMethod);
+    }
+
+    /**
+     * The protection domain of the classes of each folder.
+     */
+    private static final ConcurrentMap<Path, ProtectionDomain> protectionDomains = new ConcurrentHashMap<>();
+
+    private ClassPathDefiner() {
+    }
+
+    /**
+     * @param classLoader the class loader of the application
+     * @param folder the watch folder
+     * @return the class loader, in the hierarchy of the given one, which has the folder on its class path,
+     * or null if the folder is not on the class path
+     */
+    public static ClassLoader findClassPathLoader(ClassLoader classLoader, Path folder) {
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (findClassPathUrl(loader, folder) != null) {
+                return loader;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the class if it has already been loaded by the given class loader, null otherwise
+     */
+    public static Class<?> findLoadedClass(ClassLoader classLoader, String name) throws ClassNotFoundException {
+        try {
+            return (Class<?>) findLoadedClassMethod.invoke(classLoader, name);
+        } catch (InvocationTargetException e) {
+            throw new ClassNotFoundException(name, e.getTargetException());
+        } catch (IllegalAccessException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    /**
+     * Define a class in the given class loader, unless it has already been loaded.
+     *
+     * @param classLoader the class loader which has the folder on its class path
+     * @param folder the folder of the class
+     */
+    public static Class<?> defineClass(ClassLoader classLoader, Path folder, String name, byte[] bytes)
+            throws ClassNotFoundException {
+        try {
+            Class<?> clazz = findLoadedClass(classLoader, name);
+            if (clazz == null) {
+                definePackage(classLoader, name);
+                clazz = (Class<?>) defineClassMethod.invoke(classLoader, name, bytes, 0, bytes.length,
+                        getProtectionDomain(classLoader, folder));
+            }
+            return clazz;
+        } catch (InvocationTargetException e) {
+            if (e.getTargetException() instanceof LinkageError) {
+                // the class has been loaded by the application in the meantime
+                return Class.forName(name, false, classLoader);
+            }
+            throw new ClassNotFoundException(name, e.getTargetException());
+        } catch (IllegalAccessException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    /**
+     * Define the package of a class, unless it has already been defined.
+     */
+    private static void definePackage(ClassLoader classLoader, String name)
+            throws InvocationTargetException, IllegalAccessException {
+        int lastDot = name.lastIndexOf('.');
+        if (lastDot < 0) {
+            return;
+        }
+        String packageName = name.substring(0, lastDot);
+        if (getPackageMethod.invoke(classLoader, packageName) != null) {
+            return;
+        }
+        try {
+            definePackageMethod.invoke(classLoader, packageName, null, null, null, null, null, null, null);
+        } catch (InvocationTargetException e) {
+            if (!(e.getTargetException() instanceof IllegalArgumentException)) {
+                throw e;
+            }
+            // the package has been defined by another thread in the meantime
+        }
+    }
+
+    /**
+     * @return the protection domain of the classes of the folder, which the class loader shares by code source,
+     * or null if the class loader does not manage protection domains
+     */
+    private static ProtectionDomain getProtectionDomain(ClassLoader classLoader, Path folder)
+            throws InvocationTargetException, IllegalAccessException {
+        if (!(classLoader instanceof SecureClassLoader)) {
+            return null;
+        }
+        ProtectionDomain protectionDomain = protectionDomains.get(folder);
+        if (protectionDomain == null) {
+            URL folderUrl = findClassPathUrl(classLoader, folder);
+            if (folderUrl == null) {
+                return null;
+            }
+            protectionDomain = (ProtectionDomain) getProtectionDomainMethod.invoke(classLoader,
+                    new CodeSource(folderUrl, (CodeSigner[]) null));
+            protectionDomains.put(folder, protectionDomain);
+        }
+        return protectionDomain;
+    }
+
+    /**
+     * @return the URL of the folder in the class path of the class loader, which is the code source of its classes,
+     * or null if the folder is not on its class path
+     */
+    private static URL findClassPathUrl(ClassLoader classLoader, Path folder) {
+        if (!(classLoader instanceof URLClassLoader)) {
+            return null;
+        }
+        Path normalizedFolder = folder.toAbsolutePath().normalize();
+        for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+            try {
+                if ("file".equals(url.getProtocol()) &&
+                        Paths.get(url.toURI()).toAbsolutePath().normalize().equals(normalizedFolder)) {
+                    return url;
+                }
+            } catch (Exception e) {
+                // not a folder of the default file system
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Hot reloading class loaders for the new classes.
+ */
+package io.github.jhipster.loaded.classloader;
@@ -4,9 +4,10 @@ import io.github.jhipster.loaded.FileSystemWatcher;
 
 import java.nio.file.Path;
 import java.nio.file.WatchEvent;
+import java.util.Map;
 
 /**
- *  All classes that implement this class will be called when a file changes (create or new).
+ *  All classes that implement this class will be called when a file changes (create, new or delete).
  */
 public interface FileWatcherListener {
 
@@ -14,5 +15,32 @@ public interface FileWatcherListener {
 
     boolean support(Path file, WatchEvent.Kind kind);
 
-    void onChange(String parentFolder, Path file, WatchEvent.Kind kind);
+    /**
+     * Called when a file has changed.
+     *
+     * @param parentFolder the folder of the file
+     * @param file the file
+     * @param bytes the content of the class file read by the watcher, or null if the file is not a class file
+     * or has been deleted
+     * @param kind the kind of change
+     */
+    void onChange(String parentFolder, Path file, byte[] bytes, WatchEvent.Kind kind);
+
+    /**
+     * Called once for all the class files of a new directory tree, instead of calling onChange for each file.
+     *
+     * @param directory the new directory
+     * @param classFiles the content of the supported class files of the directory and its sub-directories, by file
+     */
+    void onNewDirectory(Path directory, Map<Path, byte[]> classFiles);
+
+    /**
+     * Called for each changed class of a watched JAR, when the JAR has been replaced.
+     *
+     * @param jar the JAR
+     * @param className the name of the class, with dots
+     * @param bytes the bytes of the class read from the new version of the JAR, or null if the class has been deleted
+     * @param kind the kind of change
+     */
+    void onJarChange(Path jar, String className, byte[] bytes, WatchEvent.Kind kind);
 }
@@ -1,111 +1,382 @@
 package io.github.jhipster.loaded.listener.filewatcher;
 
 import io.github.jhipster.loaded.FileSystemWatcher;
+import io.github.jhipster.loaded.JHipsterPluginManagerReloadPlugin;
+import io.github.jhipster.loaded.classloader.BulkClassDefiner;
+import io.github.jhipster.loaded.classloader.ClassLoaderGenerations;
+import io.github.jhipster.loaded.classloader.ClassPathDefiner;
+import io.github.jhipster.loaded.watcher.PathTrie;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springsource.loaded.ReloadableType;
 import org.springsource.loaded.TypeRegistry;
 import org.springsource.loaded.Utils;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * Support only new class.
- * The class will be loaded from the fileSystem and let Spring Loaded to handle it.
+ * Support only new and deleted classes.
+ * A new class will be loaded from the fileSystem and let Spring Loaded to handle it.
+ * The new class is defined from the bytes read by the watcher: by the class loader of the application when
+ * the watch folder is on its class path, by generations of class loaders otherwise (see ClassLoaderGenerations).
+ * The classes of a new directory are defined at once, in the order of their dependencies (see BulkClassDefiner).
+ * A deleted class will be unregistered by the reloaders. When it is created again while it is still loaded,
+ * it cannot be defined again: the loaded class is reloaded by Spring Loaded with its new bytes.
+ *
+ * The classes of the watched JARs are read from the JAR: an existing class is reloaded by Spring Loaded
+ * with its new bytes, a new class is loaded by a class loader reading the current version of the JAR.
  */
 public class NewClassLoaderListener implements FileWatcherListener {
 
     private Logger log = LoggerFactory.getLogger(NewClassLoaderListener.class);
 
     private ClassLoader parentClassLoader;
-    private Map<String, URLClassLoader> urlClassLoaderMap = new HashMap<>();
+    private PathTrie<WatchFolder> watchFolders = new PathTrie<>();
+    private ClassLoaderGenerations classLoaderGenerations;
+    private BulkClassDefiner bulkClassDefiner;
+    private Map<Path, JarClassLoader> jarClassLoaders = new ConcurrentHashMap<>();
 
 
     @Override
     public void setFileSystemWatcher(FileSystemWatcher fileSystemWatcher) {
         parentClassLoader = fileSystemWatcher.getClassLoader();
 
+        List<Path> roots = new ArrayList<>();
         for (String watchFolder : fileSystemWatcher.getWatchFolders()) {
-            try {
-                URLClassLoader urlClassLoader = new URLClassLoader(new URL[] {new File(watchFolder).toURI().toURL()}, parentClassLoader);
-                urlClassLoaderMap.put(watchFolder, urlClassLoader);
-            } catch (MalformedURLException e) {
-                log.error("Failed to register the URL classLoader for the folder '{}'", watchFolder);
+            Path watchFolderPath = FileSystems.getDefault().getPath(watchFolder);
+            roots.add(watchFolderPath);
+            ClassLoader classPathLoader = ClassPathDefiner.findClassPathLoader(parentClassLoader, watchFolderPath);
+            if (classPathLoader == null) {
+                log.debug("The watch folder '{}' is not on the class path, its new classes will be " +
+                        "defined by a class loader generation", watchFolder);
             }
+            watchFolders.put(watchFolderPath, new WatchFolder(watchFolderPath, classPathLoader));
         }
+
+        Environment env = fileSystemWatcher.getConfigurableApplicationContext().getEnvironment();
+        classLoaderGenerations = new ClassLoaderGenerations(roots, parentClassLoader,
+                env.getProperty("hotReload.classloader.maxClasses", Integer.class, 100),
+                env.getProperty("hotReload.classloader.maxAge", Long.class, 3600000L));
+        bulkClassDefiner = new BulkClassDefiner(env.getProperty("hotReload.classloader.parallelism", Integer.class,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return the generations of the class loaders used to load the new classes
+     */
+    public ClassLoaderGenerations getClassLoaderGenerations() {
+        return classLoaderGenerations;
     }
 
     @Override
     public boolean support(Path file, WatchEvent.Kind kind) {
-        return kind == StandardWatchEventKinds.ENTRY_CREATE &&
+        return (kind == StandardWatchEventKinds.ENTRY_CREATE || kind == StandardWatchEventKinds.ENTRY_DELETE) &&
                 StringUtils.equals(FilenameUtils.getExtension(file.toFile().getName()), "class");
     }
 
     @Override
-    public void onChange(String parentFolder, Path file, WatchEvent.Kind kind) {
-        loadClassFromPath(parentFolder, file.toFile().getName(), file.toFile());
+    public void onChange(String parentFolder, Path file, byte[] bytes, WatchEvent.Kind kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            unloadClassFromPath(file);
+        } else {
+            loadClassFromPath(file, bytes);
+        }
     }
 
-    private void loadClassFromPath(String parentDir, String fileName, File theFile) {
+    @Override
+    public void onNewDirectory(Path directory, Map<Path, byte[]> classFiles) {
+        long start = System.currentTimeMillis();
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        final Map<String, WatchFolder> classWatchFolders = new HashMap<>();
+        for (Map.Entry<Path, byte[]> classFile : classFiles.entrySet()) {
+            PathTrie.Match<WatchFolder> watchFolderMatch = watchFolders.resolve(classFile.getKey(), '.');
+            if (watchFolderMatch == null) {
+                log.error("Failed to find a watched folder for the file: {}", classFile.getKey());
+                continue;
+            }
+            String dottedClassName = StringUtils.removeEnd(watchFolderMatch.getRelativeName(), ".class");
+            try {
+                if (reloadLoadedClass(watchFolderMatch.getValue().classPathLoader, dottedClassName,
+                        classFile.getValue()) != null) {
+                    continue;
+                }
+            } catch (Exception | LinkageError e) {
+                log.error("Failed to reload the class named: {}", dottedClassName, e);
+                continue;
+            }
+            classes.put(dottedClassName, classFile.getValue());
+            classWatchFolders.put(dottedClassName, watchFolderMatch.getValue());
+        }
 
-        log.debug("JHipster reload - Start to reload the new class '{}'", theFile.getAbsolutePath());
-        // A class has been added, so it needs to be added to the classloader
+        log.debug("JHipster reload - Start to load the {} new classes of the directory '{}'", classes.size(), directory);
+        Map<String, Class<?>> definedClasses;
         try {
-            Map.Entry<String, URLClassLoader> urlLoaderEntry = selectUrlLoaderEntry(parentDir);
+            definedClasses = bulkClassDefiner.define(classes, new BulkClassDefiner.Definer() {
+                @Override
+                public Class<?> define(String name, byte[] bytes) throws Exception {
+                    return defineClass(classWatchFolders.get(name), name, bytes);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
 
-            if (urlLoaderEntry == null) {
-                log.error("Failed to find a watched folder for the directory: {}", parentDir);
-                return;
-            }
-            final String classesFolder = urlLoaderEntry.getKey();
-            final URLClassLoader urlClassLoader = urlLoaderEntry.getValue();
-            // Try to load the new class
-            // First we need to remove the global classesFolder from the child path
-            String slashedClassPath = StringUtils.substringAfter(parentDir, classesFolder);
-            if (slashedClassPath.startsWith("/")) {
-                slashedClassPath = slashedClassPath.substring(1);
+        // The reload events are fired in the order of the dependencies, once all the classes are defined
+        String versionstamp = Utils.encode(System.currentTimeMillis());
+        for (Map.Entry<String, Class<?>> definedClass : definedClasses.entrySet()) {
+            try {
+                fireReloadEvent(definedClass.getKey(), definedClass.getValue(), versionstamp);
+            } catch (Exception e) {
+                log.error("Failed to load the class named: {}", definedClass.getKey(), e);
             }
-            // Replace / by . to create the dottedClassName
-            String dottedClassPath = slashedClassPath.replace("/", ".");
+        }
+        log.debug("JHipster reload - {} new classes of the directory '{}' have been loaded in {} ms",
+                definedClasses.size(), directory, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void onJarChange(Path jar, String className, byte[] bytes, WatchEvent.Kind kind) {
+        JarClassLoader jarClassLoader = jarClassLoaders.get(jar);
+        if (jarClassLoader == null) {
+            jarClassLoader = new JarClassLoader(jar, parentClassLoader);
+            jarClassLoaders.put(jar, jarClassLoader);
+        }
+        String slashedClassName = className.replace('.', '/');
 
-            String slashedClassName = slashedClassPath + "/" + StringUtils.substringBefore(fileName, ".");
-            String dottedClassName = dottedClassPath + "." + StringUtils.substringBefore(fileName, ".");
+        try {
+            if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                // only a class which has already been loaded is found, by the JAR class loader which has
+                // defined it, or by the application
+                Class<?> clazz = jarClassLoader.findDefinedClass(className);
+                if (clazz == null) {
+                    clazz = ClassPathDefiner.findLoadedClass(parentClassLoader, className);
+                }
+                if (clazz == null) {
+                    log.trace("The deleted class '{}' has never been loaded, nothing to do", className);
+                    return;
+                }
+                log.debug("JHipster reload - The class '{}' has been deleted from the JAR '{}'", className, jar);
+                JHipsterPluginManagerReloadPlugin.deleteEvent(className, clazz);
+                return;
+            }
 
-            // Retrieve the Spring Loaded registry.
-            // We will use to validate the class has not been already loaded
-            TypeRegistry typeRegistry = TypeRegistry.getTypeRegistryFor(parentClassLoader);
+            String versionstamp = Utils.encode(jar.toFile().lastModified());
+            ReloadableType rtype = getReloadableType(slashedClassName, jarClassLoader);
+            if (rtype != null) {
+                log.debug("JHipster reload - Reloading the class '{}' from the JAR '{}'", className, jar);
+                rtype.loadNewVersion(versionstamp, bytes);
+            } else if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                log.debug("JHipster reload - Loading the new class '{}' from the JAR '{}'", className, jar);
+                jarClassLoader.loadClass(className);
 
-            // Load the class
-            urlClassLoader.loadClass(dottedClassName);
+                // Force SpringLoaded to instrument the class
+                TypeRegistry typeRegistry = TypeRegistry.getTypeRegistryFor(parentClassLoader);
+                if (typeRegistry != null) {
+                    typeRegistry.fireReloadEvent(getReloadableType(slashedClassName, jarClassLoader), versionstamp);
+                }
+            } else {
+                log.warn("JHipster reload - The class '{}' is not reloadable by Spring Loaded, " +
+                        "the application must be restarted to use its new version", className);
+            }
+        } catch (ClassNotFoundException e) {
+            log.trace("The deleted class '{}' has never been loaded, nothing to do", className);
+        } catch (Exception | LinkageError e) {
+            log.error("Failed to reload the class '{}' from the JAR '{}'", className, jar, e);
+        }
+    }
 
-            // Force SpringLoaded to instrument the class
+    /**
+     * @return the reloadable type of the class, from the Spring Loaded registry of the application
+     * or of the JAR class loader, or null if the class is not a reloadable type
+     */
+    private ReloadableType getReloadableType(String slashedClassName, ClassLoader jarClassLoader) {
+        for (ClassLoader classLoader : new ClassLoader[]{parentClassLoader, jarClassLoader}) {
+            TypeRegistry typeRegistry = TypeRegistry.getTypeRegistryFor(classLoader);
             if (typeRegistry != null) {
-                String versionstamp = Utils.encode(theFile.lastModified());
                 ReloadableType rtype = typeRegistry.getReloadableType(slashedClassName);
-                typeRegistry.fireReloadEvent(rtype, versionstamp);
+                if (rtype != null) {
+                    return rtype;
+                }
             }
-        } catch (Exception e) {
-            log.error("Failed to load the class named: {}", fileName, e);
+        }
+        return null;
+    }
+
+    private void unloadClassFromPath(Path file) {
+        PathTrie.Match<WatchFolder> watchFolderMatch = watchFolders.resolve(file, '.');
+
+        if (watchFolderMatch == null) {
+            log.error("Failed to find a watched folder for the file: {}", file);
+            return;
+        }
+        String dottedClassName = StringUtils.removeEnd(watchFolderMatch.getRelativeName(), ".class");
+        try {
+            // The class file does not exist anymore: only a class which has already been loaded is found
+            Class<?> clazz = classLoaderGenerations.findLoadedClass(dottedClassName);
+
+            log.debug("JHipster reload - The class '{}' has been deleted", dottedClassName);
+            JHipsterPluginManagerReloadPlugin.deleteEvent(dottedClassName, clazz);
+            classLoaderGenerations.classDeleted(dottedClassName);
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.trace("The deleted class '{}' has never been loaded, nothing to do", dottedClassName);
         }
     }
 
-    private Map.Entry<String, URLClassLoader> selectUrlLoaderEntry(String dir) {
-        for (Map.Entry<String, URLClassLoader> urlClassLoaderEntry : urlClassLoaderMap.entrySet()) {
-            final String key = urlClassLoaderEntry.getKey();
-            if (StringUtils.contains(dir, key)) {
-                return urlClassLoaderEntry;
+    private void loadClassFromPath(Path file, byte[] bytes) {
+        log.debug("JHipster reload - Start to reload the new class '{}'", file);
+        // A class has been added, so it needs to be added to the classloader
+        try {
+            // Find the watched folder of the class, and the class name relative to this folder
+            PathTrie.Match<WatchFolder> watchFolderMatch = watchFolders.resolve(file, '.');
+
+            if (watchFolderMatch == null) {
+                log.error("Failed to find a watched folder for the file: {}", file);
+                return;
+            }
+            String dottedClassName = StringUtils.removeEnd(watchFolderMatch.getRelativeName(), ".class");
+
+            ClassLoader classPathLoader = watchFolderMatch.getValue().classPathLoader;
+            if (reloadLoadedClass(classPathLoader, dottedClassName, bytes) != null) {
+                return;
+            }
+
+            // Define the class from the bytes read by the watcher
+            Class<?> clazz = defineClass(watchFolderMatch.getValue(), dottedClassName, bytes);
+
+            fireReloadEvent(dottedClassName, clazz, Utils.encode(System.currentTimeMillis()));
+        } catch (Exception | LinkageError e) {
+            log.error("Failed to load the class named: {}", file.getFileName(), e);
+        }
+    }
+
+    /**
+     * Reload a class which has been deleted and created again while it was still loaded: its class loader
+     * cannot define it again, so it is reloaded by Spring Loaded with its new bytes.
+     *
+     * @return the loaded class, or null if the class has to be defined
+     */
+    private Class<?> reloadLoadedClass(ClassLoader classPathLoader, String dottedClassName, byte[] bytes)
+            throws ClassNotFoundException {
+        Class<?> clazz;
+        if (classPathLoader != null) {
+            clazz = ClassPathDefiner.findLoadedClass(classPathLoader, dottedClassName);
+        } else {
+            clazz = classLoaderGenerations.reviveClass(dottedClassName, bytes);
+        }
+        if (clazz == null) {
+            return null;
+        }
+        TypeRegistry typeRegistry = TypeRegistry.getTypeRegistryFor(clazz.getClassLoader());
+        ReloadableType rtype = typeRegistry == null ? null :
+                typeRegistry.getReloadableType(dottedClassName.replace('.', '/'));
+        if (rtype != null) {
+            log.debug("JHipster reload - The class '{}' has been created again, reloading it", dottedClassName);
+            rtype.loadNewVersion(Utils.encode(System.currentTimeMillis()), bytes);
+        } else if (classPathLoader != null) {
+            // the class has been loaded by the application from its class path in the meantime
+            return null;
+        } else {
+            log.warn("JHipster reload - The class '{}' has been created again but is not reloadable by Spring Loaded, " +
+                    "the application must be restarted to use its new version", dottedClassName);
+        }
+        return clazz;
+    }
+
+    /**
+     * Define a new class with the class loader having its watch folder on its class path if any,
+     * with the current class loader generation otherwise.
+     */
+    private Class<?> defineClass(WatchFolder watchFolder, String dottedClassName, byte[] bytes)
+            throws ClassNotFoundException {
+        if (watchFolder.classPathLoader != null) {
+            return ClassPathDefiner.defineClass(watchFolder.classPathLoader, watchFolder.path, dottedClassName, bytes);
+        }
+        return classLoaderGenerations.defineClass(dottedClassName, bytes);
+    }
+
+    /**
+     * Force SpringLoaded to instrument a new class.
+     */
+    private void fireReloadEvent(String dottedClassName, Class<?> clazz, String versionstamp) {
+        // Retrieve the Spring Loaded registry.
+        TypeRegistry typeRegistry = TypeRegistry.getTypeRegistryFor(clazz.getClassLoader());
+
+        if (typeRegistry != null) {
+            ReloadableType rtype = typeRegistry.getReloadableType(dottedClassName.replace('.', '/'));
+            typeRegistry.fireReloadEvent(rtype, versionstamp);
+        }
+    }
+
+    /**
+     * A watch folder, with the class loader which has it on its class path if any.
+     */
+    private static class WatchFolder {
+
+        private final Path path;
+        private final ClassLoader classPathLoader;
+
+        private WatchFolder(Path path, ClassLoader classPathLoader) {
+            this.path = path;
+            this.classPathLoader = classPathLoader;
+        }
+    }
+
+    /**
+     * Loads the new classes of a JAR.
+     *
+     * Each class is read from the current version of the JAR, which is opened only for the time of the read:
+     * an URLClassLoader keeps the JAR opened and would read its previous version once it has been replaced.
+     */
+    private static class JarClassLoader extends ClassLoader {
+
+        private final Path jar;
+
+        private JarClassLoader(Path jar, ClassLoader parent) {
+            super(parent);
+            this.jar = jar;
+        }
+
+        /**
+         * @return the class if it has been defined by this class loader, null otherwise
+         */
+        private Class<?> findDefinedClass(String name) {
+            Class<?> clazz = findLoadedClass(name);
+            // a class loaded through the parent is only initiated by this class loader
+            return clazz != null && clazz.getClassLoader() == this ? clazz : null;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+                ZipEntry entry = zipFile.getEntry(name.replace('.', '/') + ".class");
+                if (entry == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    byte[] bytes = IOUtils.toByteArray(in);
+                    return defineClass(name, bytes, 0, bytes.length);
+                }
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
             }
         }
-        return null;
     }
 }
@@ -27,7 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Component
 @Order(80)
-public class JacksonReloader implements Reloader {
+public class JacksonReloader implements RemovingReloader {
 
     private final Logger log = LoggerFactory.getLogger(JacksonReloader.class);
 
@@ -58,6 +58,12 @@ public class JacksonReloader implements Reloader {
         // So we need to reload the Jackson classes
     }
 
+    @Override
+    public void removeBeans(Collection<Class> classes, Class<? extends ReloaderType> reloaderType) {
+        // The serializers and deserializers of the deleted classes must be evicted from the caches
+        reload();
+    }
+
     @Override
     public void reload() {
         log.debug("Hot reloading Jackson classes");
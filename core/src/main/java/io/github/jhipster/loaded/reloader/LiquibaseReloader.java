@@ -44,7 +44,7 @@ import java.util.*;
 @Component
 @Order(90)
 @ConditionalOnClass(Liquibase.class)
-public class LiquibaseReloader implements Reloader {
+public class LiquibaseReloader implements RemovingReloader {
 
     private final Logger log = LoggerFactory.getLogger(LiquibaseReloader.class);
 
@@ -83,6 +83,12 @@ public class LiquibaseReloader implements Reloader {
         entitiesToReload.addAll(classes);
     }
 
+    @Override
+    public void removeBeans(Collection<Class> classes, Class<? extends ReloaderType> reloaderType) {
+        // The database is never updated for a deleted entity, its tables are kept
+        entitiesToReload.removeAll(classes);
+    }
+
     @Override
     public void reload() {
         log.debug("Hot reloading JPA & Liquibase classes");
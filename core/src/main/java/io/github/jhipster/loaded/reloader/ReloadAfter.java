@@ -0,0 +1,24 @@
+package io.github.jhipster.loaded.reloader;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the reloaders which must have reloaded their classes before this reloader runs.
+ *
+ * The reloaders which do not depend on each other run in parallel during a batch.
+ * A dependency on a reloader which is not registered (Liquibase is optional for example) is ignored.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReloadAfter {
+
+    /**
+     * @return the reloaders this reloader depends on
+     */
+    Class<? extends Reloader>[] value();
+}
@@ -0,0 +1,149 @@
+package io.github.jhipster.loaded.reloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The dependencies between the reloaders, declared with @ReloadAfter.
+ *
+ * A batch runs the reloaders as a DAG: a reloader starts as soon as all the reloaders it depends on
+ * are done, so the batch takes as long as the longest chain of reloaders.
+ */
+public class ReloaderGraph {
+
+    private final Logger log = LoggerFactory.getLogger(ReloaderGraph.class);
+
+    /**
+     * The reloaders, in their @Order, with the reloaders depending on them.
+     */
+    private final Map<Reloader, List<Reloader>> dependents = new LinkedHashMap<>();
+
+    /**
+     * The number of dependencies of each reloader.
+     */
+    private final Map<Reloader, Integer> dependencyCounts = new LinkedHashMap<>();
+
+    /**
+     * @param reloaders the reloaders, sorted by their @Order
+     */
+    public ReloaderGraph(Collection<Reloader> reloaders) {
+        for (Reloader reloader : reloaders) {
+            dependents.put(reloader, new ArrayList<Reloader>());
+            dependencyCounts.put(reloader, 0);
+        }
+        for (Reloader reloader : reloaders) {
+            ReloadAfter reloadAfter = AnnotationUtils.findAnnotation(reloader.getClass(), ReloadAfter.class);
+            if (reloadAfter == null) {
+                continue;
+            }
+            for (Class<? extends Reloader> dependencyType : reloadAfter.value()) {
+                for (Reloader dependency : reloaders) {
+                    if (dependency != reloader && dependencyType.isInstance(dependency)) {
+                        log.debug("{} will run after {}", reloader.getClass().getSimpleName(),
+                                dependency.getClass().getSimpleName());
+                        dependents.get(dependency).add(reloader);
+                        dependencyCounts.put(reloader, dependencyCounts.get(reloader) + 1);
+                    }
+                }
+            }
+        }
+        if (hasCycle()) {
+            log.error("The reloaders have cyclic dependencies, they will run one after the other");
+            List<Reloader> orderedReloaders = new ArrayList<>(reloaders);
+            for (int i = 0; i < orderedReloaders.size(); i++) {
+                dependents.get(orderedReloaders.get(i)).clear();
+                dependencyCounts.put(orderedReloaders.get(i), i == 0 ? 0 : 1);
+                if (i > 0) {
+                    dependents.get(orderedReloaders.get(i - 1)).add(orderedReloaders.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the task of each reloader on the executor, once the tasks of the reloaders it depends on are done.
+     * A failing task does not prevent the reloaders depending on it from running.
+     *
+     * @param executor the executor running the tasks
+     * @param task the task to run for each reloader
+     * @throws InterruptedException if the thread has been interrupted while waiting for the tasks
+     */
+    public void execute(final Executor executor, final ReloaderTask task) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(dependents.size());
+        final Map<Reloader, AtomicInteger> remainingDependencies = new LinkedHashMap<>();
+        for (Map.Entry<Reloader, Integer> entry : dependencyCounts.entrySet()) {
+            remainingDependencies.put(entry.getKey(), new AtomicInteger(entry.getValue()));
+        }
+
+        for (Map.Entry<Reloader, AtomicInteger> entry : remainingDependencies.entrySet()) {
+            if (entry.getValue().get() == 0) {
+                submit(executor, entry.getKey(), task, remainingDependencies, done);
+            }
+        }
+        done.await();
+    }
+
+    private void submit(final Executor executor, final Reloader reloader, final ReloaderTask task,
+                        final Map<Reloader, AtomicInteger> remainingDependencies, final CountDownLatch done) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run(reloader);
+                } catch (Exception e) {
+                    log.error("The reloader {} has failed", reloader.getClass().getSimpleName(), e);
+                } finally {
+                    for (Reloader dependent : dependents.get(reloader)) {
+                        if (remainingDependencies.get(dependent).decrementAndGet() == 0) {
+                            submit(executor, dependent, task, remainingDependencies, done);
+                        }
+                    }
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    private boolean hasCycle() {
+        Map<Reloader, Integer> counts = new LinkedHashMap<>(dependencyCounts);
+        List<Reloader> ready = new ArrayList<>();
+        for (Map.Entry<Reloader, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        Set<Reloader> visited = new HashSet<>();
+        while (!ready.isEmpty()) {
+            Reloader reloader = ready.remove(ready.size() - 1);
+            visited.add(reloader);
+            for (Reloader dependent : dependents.get(reloader)) {
+                int count = counts.get(dependent) - 1;
+                counts.put(dependent, count);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return visited.size() < counts.size();
+    }
+
+    /**
+     * The work done by a reloader during a batch.
+     */
+    public interface ReloaderTask {
+
+        void run(Reloader reloader) throws Exception;
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.jhipster.loaded.reloader;
+
+import io.github.jhipster.loaded.reloader.type.ReloaderType;
+
+import java.util.Collection;
+
+/**
+ * Reloader which is also able to unregister the classes whose class file has been deleted.
+ * The reloaders which do not implement it keep the deleted classes.
+ */
+public interface RemovingReloader extends Reloader {
+
+    /**
+     * Call when the class files of spring classes have been deleted.
+     * The reloader must unregister these classes and release all the state kept for them.
+     *
+     * @param classes the list of deleted classes
+     * @param reloaderType type of the deleted spring beans
+     */
+    void removeBeans(Collection<Class> classes, Class<? extends ReloaderType> reloaderType);
+}
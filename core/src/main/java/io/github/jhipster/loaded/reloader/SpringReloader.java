@@ -1,59 +1,80 @@
 package io.github.jhipster.loaded.reloader;
 
+import io.github.jhipster.loaded.reloader.aop.AdvisorMatcher;
+import io.github.jhipster.loaded.reloader.aop.SwappableTargetPostProcessor;
+import io.github.jhipster.loaded.reloader.dependency.BeanDependencyGraph;
+import io.github.jhipster.loaded.reloader.dependency.InjectionPoint;
+import io.github.jhipster.loaded.reloader.dependency.WaitingBeans;
 import io.github.jhipster.loaded.reloader.listener.JHipsterHandlerMappingListener;
+import io.github.jhipster.loaded.reloader.listener.RemovingSpringListener;
 import io.github.jhipster.loaded.reloader.listener.SpringListener;
 import io.github.jhipster.loaded.reloader.loader.SpringLoader;
 import io.github.jhipster.loaded.reloader.type.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.aop.Advisor;
 import org.springframework.aop.framework.Advised;
-import org.springframework.aop.framework.autoproxy.BeanFactoryAdvisorRetrievalHelper;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
-import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ReflectionUtils;
 
-import javax.inject.Inject;
-import java.lang.reflect.Field;
 import java.util.*;
 
 /**
  * Reloads Spring Beans.
+ *
+ * The beans are reloaded once the EntityManagerFactory has been rebuilt with the new entities.
+ * The dependencies of the beans are tracked in a BeanDependencyGraph: a reloaded bean gets its new injection
+ * points injected, and a new bean is injected into the existing beans which depend on its type.
+ * When the SwappableTargetPostProcessor is enabled, a reloaded bean with a swappable target is replaced by
+ * a new instance instead.
+ *
+ * A bean whose dependency is missing waits until a bean of the missing type is registered, at most for
+ * the timeout defined in the application-dev.yml as follow
+ *   hotReload:
+ *     spring:
+ *       waitTimeout: 120000
  */
 @Component
 @Order(100)
-public class SpringReloader implements Reloader {
+@ReloadAfter(LiquibaseReloader.class)
+public class SpringReloader implements RemovingReloader, WaitingReloader {
 
     private final Logger log = LoggerFactory.getLogger(SpringReloader.class);
 
     private ConfigurableApplicationContext applicationContext;
-    private BeanFactoryAdvisorRetrievalHelper beanFactoryAdvisorRetrievalHelper;
-
+    private AdvisorMatcher advisorMatcher;
+    private BeanDependencyGraph dependencyGraph;
+    private SwappableTargetPostProcessor swappableTargetPostProcessor;
 
     private final List<SpringListener> springListeners = new ArrayList<>();
     private final List<SpringLoader> springLoaders = new ArrayList<>();
 
     private Set<Class> toReloadBeans = new LinkedHashSet<>();
-    private List<Class> newToWaitFromBeans = new ArrayList<>();
-    private Map<String, Class> existingToWaitFromBeans = new HashMap<>();
+    private WaitingBeans waitingBeans;
 
     @Override
     public void init(ConfigurableApplicationContext applicationContext) {
         log.debug("Hot reloading Spring Beans enabled");
         this.applicationContext = applicationContext;
-        this.beanFactoryAdvisorRetrievalHelper = new BeanFactoryAdvisorRetrievalHelper(applicationContext.getBeanFactory());
+        this.advisorMatcher = new AdvisorMatcher(applicationContext.getBeanFactory());
+        this.dependencyGraph =
+                new BeanDependencyGraph((DefaultListableBeanFactory) applicationContext.getBeanFactory());
+        this.waitingBeans = new WaitingBeans(
+                applicationContext.getEnvironment().getProperty("hotReload.spring.waitTimeout", Long.class, 120000L));
 
         this.applicationContext.getAutowireCapableBeanFactory().autowireBean(this);
 
+        for (SwappableTargetPostProcessor postProcessor :
+                applicationContext.getBeansOfType(SwappableTargetPostProcessor.class).values()) {
+            this.swappableTargetPostProcessor = postProcessor;
+        }
+
         // register listeners
         registerListeners();
 
@@ -73,61 +94,135 @@ public class SpringReloader implements Reloader {
 
     @Override
     public boolean hasBeansToReload() {
-        return toReloadBeans.size() > 0 || newToWaitFromBeans.size() > 0;
+        return toReloadBeans.size() > 0;
     }
 
     @Override
     public void addBeansToReload(Collection<Class> classes, Class<? extends ReloaderType> reloaderType) {
         if (reloaderType.equals(EntityReloaderType.class)) {
+            // the repositories of the new entities may be the missing dependencies of the waiting beans
             List<Class> newSpringBeans = new ArrayList<>();
             List<Class> existingSpringBeans = new ArrayList<>();
-
-            newSpringBeans.addAll(newToWaitFromBeans);
-            newToWaitFromBeans.clear();
-            existingSpringBeans.addAll(existingToWaitFromBeans.values());
-            existingToWaitFromBeans.clear();
+            addWokenBeans(waitingBeans.wakeUpAll(), newSpringBeans, existingSpringBeans);
 
             start(newSpringBeans, existingSpringBeans);
         } else {
+            for (Class clazz : classes) {
+                waitingBeans.remove(clazz);
+            }
             toReloadBeans.addAll(classes);
         }
     }
 
+    @Override
+    public void removeBeans(Collection<Class> classes, Class<? extends ReloaderType> reloaderType) {
+        for (Class clazz : classes) {
+            // forget the classes waiting to be reloaded
+            toReloadBeans.remove(clazz);
+            waitingBeans.remove(clazz);
+        }
+        if (reloaderType.equals(EntityReloaderType.class)) {
+            return;
+        }
+        try {
+            DefaultListableBeanFactory beanFactory = (DefaultListableBeanFactory) applicationContext.getBeanFactory();
+
+            for (Class clazz : classes) {
+                String beanName = ReloaderUtils.constructBeanName(clazz);
+                dependencyGraph.removeBean(beanName, clazz);
+                advisorMatcher.evict(clazz);
+                if (swappableTargetPostProcessor != null) {
+                    swappableTargetPostProcessor.removeBean(beanName);
+                }
+                if (AdvisorMatcher.isAdvisorClass(clazz)) {
+                    advisorMatcher.invalidateCandidates();
+                }
+                if (beanFactory.containsBeanDefinition(beanName)) {
+                    // the singleton instance is destroyed with its definition
+                    beanFactory.removeBeanDefinition(beanName);
+                } else if (beanFactory.containsSingleton(beanName)) {
+                    beanFactory.destroySingleton(beanName);
+                }
+                for (SpringListener springListener : springListeners) {
+                    if (springListener instanceof RemovingSpringListener && springListener.support(clazz)) {
+                        ((RemovingSpringListener) springListener).removeBean(clazz);
+                    }
+                }
+                log.info("JHipster reload - Spring bean '{}' has been removed.", clazz);
+            }
+
+            for (SpringListener springListener : springListeners) {
+                springListener.process();
+            }
+        } catch (Exception e) {
+            log.warn("Could not remove the Spring beans!", e);
+        }
+    }
+
     @Override
     public void reload() {
-        List<Class> newSpringBeans = new ArrayList<>();
-        List<Class> existingSpringBeans = new ArrayList<>();
+        start(new ArrayList<Class>(), new ArrayList<Class>());
+    }
 
-        newSpringBeans.addAll(newToWaitFromBeans);
-        newToWaitFromBeans.clear();
-        existingSpringBeans.addAll(existingToWaitFromBeans.values());
-        existingToWaitFromBeans.clear();
+    @Override
+    public long getNextExpiry() {
+        return waitingBeans.getNextExpiry();
+    }
 
-        start(newSpringBeans, existingSpringBeans);
+    @Override
+    public void expireWaits() {
+        waitingBeans.expire();
     }
 
+    /**
+     * Reload the beans, then the waiting beans woken up by the new beans, until no bean is woken up.
+     */
     private void start(List<Class> newSpringBeans, List<Class> existingSpringBeans) {
+        waitingBeans.expire();
+        List<Class> wokenNewBeans = newSpringBeans;
+        List<Class> wokenExistingBeans = existingSpringBeans;
+        do {
+            List<Class> addedSpringBeans = reloadBeans(wokenNewBeans, wokenExistingBeans);
+            wokenNewBeans = new ArrayList<>();
+            wokenExistingBeans = new ArrayList<>();
+            for (Class clazz : addedSpringBeans) {
+                addWokenBeans(waitingBeans.wakeUp(clazz), wokenNewBeans, wokenExistingBeans);
+            }
+        } while (!wokenNewBeans.isEmpty() || !wokenExistingBeans.isEmpty());
+    }
+
+    private void addWokenBeans(List<WaitingBeans.WaitingBean> wokenBeans, List<Class> newSpringBeans,
+                               List<Class> existingSpringBeans) {
+
+        for (WaitingBeans.WaitingBean wokenBean : wokenBeans) {
+            log.debug("JHipster reload - Spring bean '{}' can now be reloaded", wokenBean.getBeanClass());
+            if (wokenBean.isNewBean()) {
+                newSpringBeans.add(wokenBean.getBeanClass());
+            } else {
+                existingSpringBeans.add(wokenBean.getBeanClass());
+            }
+        }
+    }
+
+    /**
+     * @return the new beans which have been registered
+     */
+    private List<Class> reloadBeans(List<Class> newSpringBeans, List<Class> existingSpringBeans) {
+        List<Class> addedSpringBeans = new ArrayList<>();
         try {
             DefaultListableBeanFactory beanFactory = (DefaultListableBeanFactory) applicationContext.getBeanFactory();
 
             //1) Split between new/existing beans
             for (Class toReloadBean : toReloadBeans) {
                 log.trace("Hot reloading Spring bean: {}", toReloadBean.getName());
+                if (AdvisorMatcher.isAdvisorClass(toReloadBean)) {
+                    advisorMatcher.invalidateCandidates();
+                }
                 String beanName = ReloaderUtils.constructBeanName(toReloadBean);
                 if (!beanFactory.containsBeanDefinition(beanName)) {
                     newSpringBeans.add(toReloadBean);
-                    // Check if this new class is a dependent class.
-                    // If so add this dependent class to the newSpringBeans list
-                    if (newToWaitFromBeans.size() > 0) {
-                        newSpringBeans.addAll(newToWaitFromBeans);
-                        newToWaitFromBeans.clear();
-                    }
                 } else {
                     existingSpringBeans.add(toReloadBean);
-                    if (existingToWaitFromBeans.containsKey(toReloadBean.getName())) {
-                        existingSpringBeans.add(existingToWaitFromBeans.get(toReloadBean.getName()));
-                        existingToWaitFromBeans.remove(toReloadBean.getName());
-                    }
                 }
             }
 
@@ -146,56 +241,75 @@ public class SpringReloader implements Reloader {
                 try {
                     processLoader(clazz);
                     processListener(clazz, true);
+                    dependencyGraph.updateBean(beanName, clazz);
+                    addedSpringBeans.add(clazz);
+                    if (AdvisorMatcher.isAdvisorClass(clazz)) {
+                        advisorMatcher.invalidateCandidates();
+                    }
                     toReloadBeans.remove(clazz);
                     log.info("JHipster reload - New Spring bean '{}' has been reloaded.", clazz);
                 } catch (Exception e) {
-                    log.trace("The Spring bean can't be loaded at this time. Keep it to reload it later", e);
+                    NoSuchBeanDefinitionException missingBean = getMissingBean(e);
+                    Class<?> missingType = missingBean == null ? null : missingBean.getBeanType();
+                    log.debug("JHipster reload - Spring bean '{}' can't be loaded at this time, waiting for a bean " +
+                            "of type '{}'", clazz, missingType, e);
                     // remove the registration bean to treat this class as new class
                     beanFactory.removeBeanDefinition(beanName);
-                    newToWaitFromBeans.add(clazz);
+                    waitingBeans.add(clazz, true, missingType);
                     toReloadBeans.remove(clazz);
                 }
             }
 
-            //4) Resolve dependencies for existing beans
+            //4) Inject the new beans into the existing beans which depend on them
+            for (Class clazz : addedSpringBeans) {
+                injectDependents(beanFactory, clazz);
+            }
+
+            //5) Resolve dependencies for existing beans
             for (Class clazz : existingSpringBeans) {
+                String beanName = ReloaderUtils.constructBeanName(clazz);
                 Object beanInstance = applicationContext.getBean(clazz);
 
                 log.trace("Existing bean, autowiring fields");
                 if (AopUtils.isCglibProxy(beanInstance)) {
                     log.trace("This is a CGLIB proxy, getting the real object");
-                    addAdvisorIfNeeded(clazz, beanInstance);
                     final Advised advised = (Advised) beanInstance;
+                    advisorMatcher.updateAdvisors(advised, clazz);
                     beanInstance = advised.getTargetSource().getTarget();
                 } else if (AopUtils.isJdkDynamicProxy(beanInstance)) {
                     log.trace("This is a JDK proxy, getting the real object");
-                    addAdvisorIfNeeded(clazz, beanInstance);
                     final Advised advised = (Advised) beanInstance;
+                    advisorMatcher.updateAdvisors(advised, clazz);
                     beanInstance = advised.getTargetSource().getTarget();
                 } else {
                     log.trace("This is a normal Java object");
                 }
+                if (swappableTargetPostProcessor != null && swappableTargetPostProcessor.isSwappable(beanName)) {
+                    swapBean(beanName, clazz);
+                    continue;
+                }
                 boolean failedToUpdate = false;
-                Field[] fields = beanInstance.getClass().getDeclaredFields();
-                for (Field field : fields) {
-                    if (AnnotationUtils.getAnnotation(field, Inject.class) != null ||
-                            AnnotationUtils.getAnnotation(field, Autowired.class) != null) {
-                        log.trace("@Inject/@Autowired annotation found on field {}", field.getName());
-                        ReflectionUtils.makeAccessible(field);
-                        if (ReflectionUtils.getField(field, beanInstance) != null) {
-                            log.trace("Field is already injected, not doing anything");
-                        } else {
-                            log.trace("Field is null, injecting a Spring bean");
-                            try {
-                            Object beanToInject = applicationContext.getBean(field.getType());
-                            ReflectionUtils.setField(field, beanInstance, beanToInject);
-                            } catch (NoSuchBeanDefinitionException bsbde) {
-                                log.debug("JHipster reload - Spring bean '{}' does not exist, " +
-                                        "wait until this class will be available.", field.getType());
-                                failedToUpdate = true;
-                                existingToWaitFromBeans.put(field.getType().getName(), clazz);
-                            }
-                        }
+                Set<InjectionPoint> newInjectionPoints = dependencyGraph.updateBean(beanName, clazz);
+                for (InjectionPoint injectionPoint : dependencyGraph.getInjectionPoints(beanName)) {
+                    boolean isNew = newInjectionPoints.contains(injectionPoint);
+                    if (isNew && !injectionPoint.isReinjectable()) {
+                        log.warn("JHipster reload - The injection point {} can't be injected in an existing " +
+                                "bean, a restart is needed.", injectionPoint);
+                    }
+                    if (!injectionPoint.needsInjection(beanInstance, isNew)) {
+                        log.trace("Injection point {} is already injected, not doing anything", injectionPoint);
+                        continue;
+                    }
+                    log.trace("Injecting the Spring beans of the injection point {}", injectionPoint);
+                    try {
+                        injectionPoint.inject(beanInstance, beanFactory);
+                    } catch (NoSuchBeanDefinitionException bsbde) {
+                        Class<?> missingType = bsbde.getBeanType() != null ? bsbde.getBeanType() :
+                                injectionPoint.getDependencyTypes().get(0);
+                        log.debug("JHipster reload - Spring bean '{}' does not exist, " +
+                                "wait until this class will be available.", missingType);
+                        failedToUpdate = true;
+                        waitingBeans.add(clazz, false, missingType);
                     }
                 }
                 toReloadBeans.remove(clazz);
@@ -211,21 +325,63 @@ public class SpringReloader implements Reloader {
         } catch (Exception e) {
             log.warn("Could not hot reload Spring bean!", e);
         }
+        return addedSpringBeans;
     }
 
     /**
-     * AOP uses advisor to intercept any annotations.
+     * Replace an existing bean by a new instance, built with the new version of its class.
      */
-    private void addAdvisorIfNeeded(Class clazz, Object beanInstance) {
-        final Advised advised = (Advised) beanInstance;
-        final List<Advisor> candidateAdvisors = this.beanFactoryAdvisorRetrievalHelper.findAdvisorBeans();
+    private void swapBean(String beanName, Class clazz) {
+        dependencyGraph.updateBean(beanName, clazz);
+        toReloadBeans.remove(clazz);
+        try {
+            swappableTargetPostProcessor.swap(beanName, clazz);
+            processListener(clazz, false);
+            log.info("JHipster reload - Existing Spring bean '{}' has been replaced by a new instance.", clazz);
+        } catch (RuntimeException e) {
+            NoSuchBeanDefinitionException missingBean = getMissingBean(e);
+            if (missingBean == null || missingBean.getBeanType() == null) {
+                log.warn("JHipster reload - Spring bean '{}' can't be replaced, keeping the current instance",
+                        clazz, e);
+                return;
+            }
+            log.debug("JHipster reload - Spring bean '{}' does not exist, " +
+                    "wait until this class will be available.", missingBean.getBeanType());
+            waitingBeans.add(clazz, false, missingBean.getBeanType());
+        }
+    }
 
-        final List<Advisor> advisorsThatCanApply = AopUtils.findAdvisorsThatCanApply(candidateAdvisors, clazz);
+    private static NoSuchBeanDefinitionException getMissingBean(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchBeanDefinitionException) {
+                return (NoSuchBeanDefinitionException) cause;
+            }
+        }
+        return null;
+    }
 
-        for (Advisor advisor : advisorsThatCanApply) {
-            // Add the advisor to the advised if it doesn't exist
-            if (advised.indexOf(advisor) == -1) {
-                advised.addAdvisor(advisor);
+    /**
+     * Inject a new bean into the existing singletons which depend on its type.
+     */
+    private void injectDependents(DefaultListableBeanFactory beanFactory, Class clazz) throws Exception {
+        String beanName = ReloaderUtils.constructBeanName(clazz);
+        for (InjectionPoint injectionPoint : dependencyGraph.getDependents(beanName, clazz)) {
+            String dependentBeanName = injectionPoint.getBeanName();
+            if (!beanFactory.containsSingleton(dependentBeanName)) {
+                continue;
+            }
+            Object dependentBean = beanFactory.getSingleton(dependentBeanName);
+            if (AopUtils.isAopProxy(dependentBean)) {
+                dependentBean = ((Advised) dependentBean).getTargetSource().getTarget();
+            }
+            if (dependentBean == null || !injectionPoint.needsInjection(dependentBean, true)) {
+                continue;
+            }
+            try {
+                injectionPoint.inject(dependentBean, beanFactory);
+                log.debug("JHipster reload - Spring bean '{}' has been injected into {}", beanName, injectionPoint);
+            } catch (NoSuchBeanDefinitionException e) {
+                log.debug("The injection point {} can't be injected yet: {}", injectionPoint, e.getMessage());
             }
         }
     }
@@ -0,0 +1,18 @@
+package io.github.jhipster.loaded.reloader;
+
+/**
+ * Reloader which keeps the beans waiting for their missing dependencies, at most for a timeout.
+ * The reloader thread wakes up when the next wait expires.
+ */
+public interface WaitingReloader extends Reloader {
+
+    /**
+     * @return when the next wait expires, in ms, or 0 if no bean is waiting
+     */
+    long getNextExpiry();
+
+    /**
+     * Stop waiting for the beans whose wait has expired.
+     */
+    void expireWaits();
+}
@@ -0,0 +1,130 @@
+package io.github.jhipster.loaded.reloader.aop;
+
+import io.github.jhipster.loaded.TypeVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.autoproxy.BeanFactoryAdvisorRetrievalHelper;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the advisors of the proxied beans in sync with their reloaded classes.
+ *
+ * The advisor beans are retrieved once, until an advisor bean is reloaded, added or removed. The advisors which
+ * can apply to a class are matched once per version of the class: the pointcuts are only evaluated again when
+ * the class, one of its super classes or the advisors have changed.
+ *
+ * The matcher is not thread-safe: it is only used by the SpringReloader, which reloads one batch at a time.
+ */
+public class AdvisorMatcher {
+
+    private final Logger log = LoggerFactory.getLogger(AdvisorMatcher.class);
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    private List<Advisor> candidateAdvisors;
+
+    /**
+     * Incremented each time the candidate advisors are retrieved again, to invalidate the matches.
+     */
+    private int candidateVersion;
+
+    private final Map<Class<?>, Match> matches = new HashMap<>();
+
+    public AdvisorMatcher(ConfigurableListableBeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * @return true if a class defines advisors, in which case the candidate advisors must be retrieved again
+     * when it is reloaded, added or removed
+     */
+    public static boolean isAdvisorClass(Class<?> clazz) {
+        return Advisor.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Retrieve the advisor beans again on the next match.
+     */
+    public void invalidateCandidates() {
+        candidateAdvisors = null;
+    }
+
+    /**
+     * Forget the advisors of a class, so its class loader can be released.
+     */
+    public void evict(Class<?> clazz) {
+        matches.remove(clazz);
+    }
+
+    /**
+     * Add the advisors which now apply to the class of a proxy, and remove the ones which do not apply anymore.
+     * The advisors which are not advisor beans, added by the proxy factory itself, are kept.
+     *
+     * @param advised the proxy
+     * @param clazz the class of the proxied bean
+     */
+    public void updateAdvisors(Advised advised, Class<?> clazz) {
+        List<Advisor> advisorsThatCanApply = getAdvisorsThatCanApply(clazz);
+        Set<Advisor> candidates = new HashSet<>(getCandidateAdvisors());
+        try {
+            for (Advisor advisor : advised.getAdvisors()) {
+                if (candidates.contains(advisor) && !advisorsThatCanApply.contains(advisor)) {
+                    advised.removeAdvisor(advisor);
+                    log.debug("The advisor {} has been removed from the proxy of {}", advisor, clazz.getName());
+                }
+            }
+            for (Advisor advisor : advisorsThatCanApply) {
+                // Add the advisor to the advised if it doesn't exist
+                if (advised.indexOf(advisor) == -1) {
+                    advised.addAdvisor(advisor);
+                    log.debug("The advisor {} has been added to the proxy of {}", advisor, clazz.getName());
+                }
+            }
+        } catch (AopConfigException e) {
+            log.warn("The advisors of the proxy of {} can't be updated: {}", clazz.getName(), e.getMessage());
+        }
+    }
+
+    private List<Advisor> getCandidateAdvisors() {
+        if (candidateAdvisors == null) {
+            // a new helper, as it caches the names of the advisor beans
+            candidateAdvisors = new BeanFactoryAdvisorRetrievalHelper(beanFactory).findAdvisorBeans();
+            candidateVersion++;
+            log.debug("{} candidate advisors have been retrieved", candidateAdvisors.size());
+        }
+        return candidateAdvisors;
+    }
+
+    private List<Advisor> getAdvisorsThatCanApply(Class<?> clazz) {
+        List<Advisor> candidates = getCandidateAdvisors();
+        String version = candidateVersion + ":" + TypeVersions.getHierarchyVersion(clazz);
+        Match match = matches.get(clazz);
+        if (match == null || !match.version.equals(version)) {
+            match = new Match(version, new ArrayList<>(AopUtils.findAdvisorsThatCanApply(candidates, clazz)));
+            matches.put(clazz, match);
+        }
+        return match.advisors;
+    }
+
+    private static class Match {
+
+        private final String version;
+        private final List<Advisor> advisors;
+
+        private Match(String version, List<Advisor> advisors) {
+            this.version = version;
+            this.advisors = advisors;
+        }
+    }
+}
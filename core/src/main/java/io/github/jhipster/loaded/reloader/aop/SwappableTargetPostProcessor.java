@@ -0,0 +1,205 @@
+package io.github.jhipster.loaded.reloader.aop;
+
+import io.github.jhipster.loaded.reloader.ReloaderUtils;
+import io.github.jhipster.loaded.reloader.type.PackageTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.target.HotSwappableTargetSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps the reloadable singletons in a proxy whose target can be swapped, so a reloaded bean is replaced by
+ * a new instance instead of being patched in place.
+ *
+ * The new instance is built beside the old one: created with its constructor dependencies, injected and
+ * initialized by all the bean post processors. It is then published atomically by the HotSwappableTargetSource,
+ * and the old instance is destroyed through the bean factory: its destroy methods and the destruction aware
+ * post processors release what it has registered (its scheduled tasks or listeners for example), so each reload
+ * does not add another registration. The calls in progress finish on the old instance, after its destruction.
+ * A class with final methods should not be swapped: these methods are called on the proxy itself.
+ *
+ * This is not a bean post processor ordered by priority, so it runs after the auto-proxy creators: a bean which
+ * is already an AOP proxy is proxied again with the same advisors and a swappable target. A bean referenced
+ * early, in a circular reference, keeps its original reference and is not swappable.
+ *
+ * This mode is opt-in, and must be enabled in the application-dev.yml as follow
+ *   hotReload:
+ *     spring:
+ *       swappableTargets: true
+ */
+@Component
+public class SwappableTargetPostProcessor extends InstantiationAwareBeanPostProcessorAdapter
+        implements BeanFactoryAware, EnvironmentAware {
+
+    private final Logger log = LoggerFactory.getLogger(SwappableTargetPostProcessor.class);
+
+    private ConfigurableListableBeanFactory beanFactory;
+    private boolean enabled;
+    private PackageTrie projectPackages;
+
+    private final ConcurrentMap<String, HotSwappableTargetSource> targetSources = new ConcurrentHashMap<>();
+
+    /**
+     * The beans referenced early, and the beans whose new instance is being built: they are not wrapped.
+     */
+    private final Set<String> earlyReferences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> swappingBeans = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void setEnvironment(Environment env) {
+        enabled = env.getProperty("hotReload.enabled", Boolean.class, false) &&
+                env.getProperty("hotReload.spring.swappableTargets", Boolean.class, false);
+        projectPackages = PackageTrie.fromProperty(env, "hotReload.package.project");
+        if (enabled) {
+            log.debug("Hot reloading Spring beans with swappable targets enabled");
+        }
+    }
+
+    /**
+     * @return true if the bean is wrapped in a proxy whose target can be swapped
+     */
+    public boolean isSwappable(String beanName) {
+        return targetSources.containsKey(beanName);
+    }
+
+    /**
+     * Build a new instance of a reloaded bean, and publish it as the target of its proxy.
+     *
+     * @param beanName the name of the bean
+     * @param clazz the class of the bean
+     * @throws BeansException if the new instance can't be built, for instance when one of its dependencies is
+     * missing: the old instance is kept
+     */
+    public void swap(String beanName, Class<?> clazz) throws BeansException {
+        HotSwappableTargetSource targetSource = targetSources.get(beanName);
+        if (targetSource == null) {
+            throw new IllegalStateException("The target of the bean '" + beanName + "' is not swappable");
+        }
+        Object target;
+        swappingBeans.add(beanName);
+        try {
+            target = beanFactory.autowire(clazz, AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR, false);
+            beanFactory.autowireBeanProperties(target, getAutowireMode(beanName), false);
+            target = beanFactory.initializeBean(target, beanName);
+            if (target instanceof Advised) {
+                // the auto-proxy creators have proxied the new instance, but the advisors are on the swappable proxy
+                target = ((Advised) target).getTargetSource().getTarget();
+            }
+        } catch (BeansException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("The new instance of the bean '" + beanName + "' can't be built", e);
+        } finally {
+            swappingBeans.remove(beanName);
+        }
+        Object oldTarget = targetSource.swap(target);
+        log.debug("The target of the bean '{}' has been swapped", beanName);
+        try {
+            beanFactory.destroyBean(beanName, oldTarget);
+        } catch (RuntimeException e) {
+            log.warn("The previous instance of the bean '{}' can't be destroyed: {}", beanName, e.getMessage());
+        }
+    }
+
+    /**
+     * Forget a removed bean.
+     */
+    public void removeBean(String beanName) {
+        targetSources.remove(beanName);
+    }
+
+    @Override
+    public Object getEarlyBeanReference(Object bean, String beanName) throws BeansException {
+        if (enabled) {
+            earlyReferences.add(beanName);
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!enabled || swappingBeans.contains(beanName) || earlyReferences.remove(beanName) ||
+                !isReloadableSingleton(bean, beanName)) {
+            return bean;
+        }
+        try {
+            ProxyFactory proxyFactory = new ProxyFactory();
+            Object target = bean;
+            if (bean instanceof Advised) {
+                Advised advised = (Advised) bean;
+                if (!advised.getTargetSource().isStatic()) {
+                    // the bean already has its own target source
+                    return bean;
+                }
+                target = advised.getTargetSource().getTarget();
+                proxyFactory.setProxyTargetClass(advised.isProxyTargetClass());
+                proxyFactory.setExposeProxy(advised.isExposeProxy());
+                proxyFactory.setInterfaces(advised.getProxiedInterfaces());
+                proxyFactory.addAdvisors(advised.getAdvisors());
+            } else {
+                proxyFactory.setProxyTargetClass(true);
+            }
+            HotSwappableTargetSource targetSource = new HotSwappableTargetSource(target);
+            proxyFactory.setTargetSource(targetSource);
+            Object proxy = proxyFactory.getProxy(target.getClass().getClassLoader());
+            targetSources.put(beanName, targetSource);
+            log.trace("The bean '{}' has a swappable target", beanName);
+            return proxy;
+        } catch (Exception e) {
+            log.warn("The bean '{}' can't have a swappable target: {}", beanName, e.getMessage());
+            return bean;
+        }
+    }
+
+    private boolean isReloadableSingleton(Object bean, String beanName) {
+        Class<?> beanClass = ClassUtils.getUserClass(bean instanceof Advised ?
+                ((Advised) bean).getTargetClass() : bean.getClass());
+        if (beanClass == null || Modifier.isFinal(beanClass.getModifiers()) ||
+                !projectPackages.contains(beanClass.getName()) ||
+                Repository.class.isAssignableFrom(beanClass) ||
+                ReloaderUtils.getSpringClassAnnotation(beanClass) == null) {
+            return false;
+        }
+        return beanFactory.containsBeanDefinition(beanName) &&
+                beanFactory.getMergedBeanDefinition(beanName).isSingleton();
+    }
+
+    private int getAutowireMode(String beanName) {
+        if (beanFactory.containsBeanDefinition(beanName)) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition instanceof AbstractBeanDefinition) {
+                int autowireMode = ((AbstractBeanDefinition) beanDefinition).getResolvedAutowireMode();
+                if (autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE ||
+                        autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME) {
+                    return autowireMode;
+                }
+            }
+        }
+        return AutowireCapableBeanFactory.AUTOWIRE_NO;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Hot reloading AOP advisors of the Spring beans.
+ */
+package io.github.jhipster.loaded.reloader.aop;
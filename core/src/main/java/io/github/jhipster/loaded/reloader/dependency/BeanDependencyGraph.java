@@ -0,0 +1,228 @@
+package io.github.jhipster.loaded.reloader.dependency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The graph of the dependencies between the Spring beans: which bean injects which type, by field, method
+ * or constructor.
+ *
+ * The graph is built once from the bean factory, then updated when a bean is reloaded, added or removed.
+ * The injection points are indexed by the types they inject, so the beans depending on a reloaded class are
+ * found without looking at the other beans. The injection points of the classes are cached by class version.
+ *
+ * The graph is not thread-safe: it is only used by the SpringReloader, which reloads one batch at a time.
+ */
+public class BeanDependencyGraph {
+
+    private final Logger log = LoggerFactory.getLogger(BeanDependencyGraph.class);
+
+    private final DefaultListableBeanFactory beanFactory;
+
+    /**
+     * The injection points of each bean, by bean name.
+     */
+    private final Map<String, List<InjectionPoint>> injectionPoints = new HashMap<>();
+
+    /**
+     * The injection points depending on each type, by type name.
+     */
+    private final Map<String, Set<InjectionPoint>> dependents = new HashMap<>();
+
+    private final InjectionMetadataCache injectionMetadataCache = new InjectionMetadataCache();
+
+    private boolean built;
+
+    public BeanDependencyGraph(DefaultListableBeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * Add a bean to the graph, or replace its injection points with the ones of the new version of its class.
+     *
+     * @param beanName the name of the bean
+     * @param beanClass the class of the bean
+     * @return the injection points which were not in the previous version of the class
+     */
+    public Set<InjectionPoint> updateBean(String beanName, Class<?> beanClass) {
+        build();
+        List<InjectionPoint> previousInjectionPoints = removeInjectionPoints(beanName);
+        List<InjectionPoint> newInjectionPoints = addInjectionPoints(beanName, beanClass);
+
+        Set<InjectionPoint> addedInjectionPoints = new LinkedHashSet<>(newInjectionPoints);
+        addedInjectionPoints.removeAll(previousInjectionPoints);
+        return addedInjectionPoints;
+    }
+
+    /**
+     * Remove a bean from the graph. The beans which depend on it are kept.
+     */
+    public void removeBean(String beanName, Class<?> beanClass) {
+        build();
+        removeInjectionPoints(beanName);
+        injectionMetadataCache.evict(beanClass);
+    }
+
+    /**
+     * @return the injection points of the bean
+     */
+    public List<InjectionPoint> getInjectionPoints(String beanName) {
+        build();
+        List<InjectionPoint> beanInjectionPoints = injectionPoints.get(beanName);
+        return beanInjectionPoints == null ? Collections.<InjectionPoint>emptyList() : beanInjectionPoints;
+    }
+
+    /**
+     * @param beanName the name of the bean
+     * @param clazz the class of the bean
+     * @return the injection points of the other beans into which a bean of this class can be injected
+     */
+    public Set<InjectionPoint> getDependents(String beanName, Class<?> clazz) {
+        build();
+        Set<InjectionPoint> classDependents = new LinkedHashSet<>();
+        for (String typeName : getTypeNames(clazz)) {
+            Set<InjectionPoint> typeDependents = dependents.get(typeName);
+            if (typeDependents != null) {
+                for (InjectionPoint injectionPoint : typeDependents) {
+                    if (!injectionPoint.getBeanName().equals(beanName)) {
+                        classDependents.add(injectionPoint);
+                    }
+                }
+            }
+        }
+        return classDependents;
+    }
+
+    private void build() {
+        if (built) {
+            return;
+        }
+        built = true;
+        long start = System.currentTimeMillis();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            try {
+                Class<?> beanClass = getBeanClass(beanName);
+                if (beanClass != null) {
+                    addInjectionPoints(beanName, ClassUtils.getUserClass(beanClass));
+                }
+            } catch (Exception | LinkageError e) {
+                log.debug("The injection points of the bean '{}' can't be read: {}", beanName, e.getMessage());
+            }
+        }
+        log.debug("The dependency graph of {} beans has been built in {} ms", injectionPoints.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the class of the bean, without creating it: the bean class of its definition, the target class
+     * of the singleton if it is an AOP proxy, or its type as a last resort. Null when the class can't be known
+     * without creating the bean, or when it is only known as a JDK proxy.
+     */
+    private Class<?> getBeanClass(String beanName) throws ClassNotFoundException {
+        BeanDefinition beanDefinition = beanFactory.getMergedBeanDefinition(beanName);
+        if (beanDefinition.isAbstract()) {
+            return null;
+        }
+        if (beanDefinition.getFactoryMethodName() == null && beanDefinition.getBeanClassName() != null) {
+            Class<?> beanClass;
+            if (beanDefinition instanceof AbstractBeanDefinition &&
+                    ((AbstractBeanDefinition) beanDefinition).hasBeanClass()) {
+                beanClass = ((AbstractBeanDefinition) beanDefinition).getBeanClass();
+            } else {
+                // the class is loaded but not initialized
+                beanClass = ClassUtils.forName(beanDefinition.getBeanClassName(), beanFactory.getBeanClassLoader());
+            }
+            if (!FactoryBean.class.isAssignableFrom(beanClass)) {
+                return beanClass;
+            }
+        }
+        if (!beanFactory.containsSingleton(beanName)) {
+            return null;
+        }
+        Object singleton = beanFactory.getSingleton(beanName);
+        if (singleton instanceof Advised && ((Advised) singleton).getTargetClass() != null) {
+            return ((Advised) singleton).getTargetClass();
+        }
+        Class<?> beanType = beanFactory.getType(beanName);
+        return beanType == null || Proxy.isProxyClass(beanType) ? null : beanType;
+    }
+
+    private List<InjectionPoint> addInjectionPoints(String beanName, Class<?> beanClass) {
+        List<InjectionPoint> beanInjectionPoints = new ArrayList<>();
+        for (InjectionElement element : injectionMetadataCache.getElements(beanClass, isAutowiredByType(beanName))) {
+            beanInjectionPoints.add(new InjectionPoint(beanName, element));
+        }
+        injectionPoints.put(beanName, beanInjectionPoints);
+        for (InjectionPoint injectionPoint : beanInjectionPoints) {
+            for (Class<?> dependencyType : injectionPoint.getDependencyTypes()) {
+                Set<InjectionPoint> typeDependents = dependents.get(dependencyType.getName());
+                if (typeDependents == null) {
+                    typeDependents = new LinkedHashSet<>();
+                    dependents.put(dependencyType.getName(), typeDependents);
+                }
+                typeDependents.add(injectionPoint);
+            }
+        }
+        return beanInjectionPoints;
+    }
+
+    private List<InjectionPoint> removeInjectionPoints(String beanName) {
+        List<InjectionPoint> beanInjectionPoints = injectionPoints.remove(beanName);
+        if (beanInjectionPoints == null) {
+            return new ArrayList<>();
+        }
+        for (InjectionPoint injectionPoint : beanInjectionPoints) {
+            for (Class<?> dependencyType : injectionPoint.getDependencyTypes()) {
+                Set<InjectionPoint> typeDependents = dependents.get(dependencyType.getName());
+                if (typeDependents != null) {
+                    typeDependents.remove(injectionPoint);
+                    if (typeDependents.isEmpty()) {
+                        dependents.remove(dependencyType.getName());
+                    }
+                }
+            }
+        }
+        return beanInjectionPoints;
+    }
+
+    private boolean isAutowiredByType(String beanName) {
+        if (!beanFactory.containsBeanDefinition(beanName)) {
+            return false;
+        }
+        BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+        return beanDefinition instanceof AbstractBeanDefinition &&
+                ((AbstractBeanDefinition) beanDefinition).getResolvedAutowireMode() ==
+                        AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE;
+    }
+
+    /**
+     * @return the names of the class, of its super classes and of its interfaces
+     */
+    private static Set<String> getTypeNames(Class<?> clazz) {
+        Set<String> typeNames = new HashSet<>();
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            typeNames.add(type.getName());
+        }
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(clazz)) {
+            typeNames.add(type.getName());
+        }
+        return typeNames;
+    }
+}
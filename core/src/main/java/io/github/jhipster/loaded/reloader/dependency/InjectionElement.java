@@ -0,0 +1,181 @@
+package io.github.jhipster.loaded.reloader.dependency;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.inject.Inject;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An injected field, method or constructor of a class, with its dependency descriptors resolved once.
+ *
+ * The dependency types of a collection, a map or an array are the types of their elements, so a bean
+ * depending on a list of services is found from any of these services.
+ */
+class InjectionElement {
+
+    private final Member member;
+    private final boolean multiple;
+    private final List<Class<?>> dependencyTypes;
+    private final DependencyDescriptor[] descriptors;
+
+    private InjectionElement(Member member, boolean multiple, List<Class<?>> dependencyTypes,
+                             DependencyDescriptor[] descriptors) {
+
+        this.member = member;
+        this.multiple = multiple;
+        this.dependencyTypes = dependencyTypes;
+        this.descriptors = descriptors;
+        if (member instanceof Field) {
+            ReflectionUtils.makeAccessible((Field) member);
+        } else if (member instanceof Method) {
+            ReflectionUtils.makeAccessible((Method) member);
+        }
+    }
+
+    /**
+     * @return the @Inject/@Autowired field
+     */
+    static InjectionElement forField(Field field) {
+        ResolvableType type = ResolvableType.forField(field);
+        return new InjectionElement(field, isMultiple(type),
+                Collections.<Class<?>>singletonList(getDependencyType(type)),
+                new DependencyDescriptor[]{new DependencyDescriptor(field, isRequired(field))});
+    }
+
+    /**
+     * @param required false for a setter autowired by type
+     * @return the @Inject/@Autowired method or constructor, or the setter
+     */
+    static InjectionElement forParameters(Member member, boolean required) {
+        int parameterCount = member instanceof Method ? ((Method) member).getParameterTypes().length :
+                ((Constructor<?>) member).getParameterTypes().length;
+        boolean multiple = false;
+        List<Class<?>> dependencyTypes = new ArrayList<>(parameterCount);
+        DependencyDescriptor[] descriptors = new DependencyDescriptor[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            MethodParameter parameter = MethodParameter.forMethodOrConstructor(member, i);
+            ResolvableType type = ResolvableType.forMethodParameter(parameter);
+            multiple |= isMultiple(type);
+            dependencyTypes.add(getDependencyType(type));
+            descriptors[i] = new DependencyDescriptor(parameter, required);
+        }
+        return new InjectionElement(member, multiple, dependencyTypes, descriptors);
+    }
+
+    static boolean isInjected(AnnotatedElement element) {
+        return AnnotationUtils.getAnnotation(element, Inject.class) != null ||
+                AnnotationUtils.getAnnotation(element, Autowired.class) != null;
+    }
+
+    static boolean isRequired(AnnotatedElement element) {
+        Autowired autowired = AnnotationUtils.getAnnotation(element, Autowired.class);
+        return autowired == null || autowired.required();
+    }
+
+    /**
+     * @return true for a public setter of a bean property, autowired when the bean is autowired by type
+     */
+    static boolean isSetter(Method method) {
+        return Modifier.isPublic(method.getModifiers()) && method.getName().startsWith("set") &&
+                method.getName().length() > 3 && method.getParameterTypes().length == 1 &&
+                method.getReturnType() == void.class && !BeanUtils.isSimpleProperty(method.getParameterTypes()[0]);
+    }
+
+    Member getMember() {
+        return member;
+    }
+
+    List<Class<?>> getDependencyTypes() {
+        return dependencyTypes;
+    }
+
+    boolean isMultiple() {
+        return multiple;
+    }
+
+    boolean isReinjectable() {
+        return !(member instanceof Constructor) && !Modifier.isFinal(member.getModifiers());
+    }
+
+    boolean needsInjection(Object bean, boolean dependencyAdded) {
+        if (!isReinjectable()) {
+            return false;
+        }
+        if (member instanceof Field) {
+            return ReflectionUtils.getField((Field) member, bean) == null || (multiple && dependencyAdded);
+        }
+        return dependencyAdded;
+    }
+
+    void inject(Object bean, String beanName, DefaultListableBeanFactory beanFactory,
+                Set<String> autowiredBeanNames) {
+
+        if (member instanceof Field) {
+            Object value = beanFactory.resolveDependency(descriptors[0], beanName, autowiredBeanNames, null);
+            if (value != null) {
+                ReflectionUtils.setField((Field) member, bean, value);
+            }
+            return;
+        }
+        Object[] arguments = new Object[descriptors.length];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = beanFactory.resolveDependency(descriptors[i], beanName, autowiredBeanNames, null);
+            if (arguments[i] == null) {
+                // an optional dependency is missing, the method is not called
+                return;
+            }
+        }
+        ReflectionUtils.invokeMethod((Method) member, bean, arguments);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return member.equals(((InjectionElement) o).member);
+    }
+
+    @Override
+    public int hashCode() {
+        return member.hashCode();
+    }
+
+    private static boolean isMultiple(ResolvableType type) {
+        return type.isArray() || Collection.class.isAssignableFrom(type.resolve(Object.class)) ||
+                Map.class.isAssignableFrom(type.resolve(Object.class));
+    }
+
+    private static Class<?> getDependencyType(ResolvableType type) {
+        ResolvableType elementType = type;
+        if (type.isArray()) {
+            elementType = type.getComponentType();
+        } else if (Collection.class.isAssignableFrom(type.resolve(Object.class))) {
+            elementType = type.asCollection().getGeneric(0);
+        } else if (Map.class.isAssignableFrom(type.resolve(Object.class))) {
+            elementType = type.asMap().getGeneric(1);
+        }
+        return elementType.resolve(type.resolve(Object.class));
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.jhipster.loaded.reloader.dependency;
+
+import io.github.jhipster.loaded.TypeVersions;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the injection elements of the bean classes, including the ones inherited from their super classes.
+ *
+ * An entry is keyed by the Spring Loaded version stamps of the class and of its super classes: it is computed
+ * again only when one of them has been reloaded.
+ *
+ * The cache is not thread-safe: it is only used by the BeanDependencyGraph.
+ */
+class InjectionMetadataCache {
+
+    private final Map<Class<?>, InjectionMetadata> cache = new HashMap<>();
+
+    /**
+     * @param clazz the class of a bean
+     * @param autowireByType true if the bean is autowired by type, in which case its setters are injected
+     * @return the injection elements of the class
+     */
+    List<InjectionElement> getElements(Class<?> clazz, boolean autowireByType) {
+        String version = TypeVersions.getHierarchyVersion(clazz);
+        InjectionMetadata metadata = cache.get(clazz);
+        if (metadata == null || !metadata.version.equals(version)) {
+            metadata = new InjectionMetadata(clazz, version);
+            cache.put(clazz, metadata);
+        }
+        return autowireByType ? metadata.autowireByTypeElements : metadata.annotatedElements;
+    }
+
+    /**
+     * Forget a class, so its class loader can be released.
+     */
+    void evict(Class<?> clazz) {
+        cache.remove(clazz);
+    }
+
+    private static class InjectionMetadata {
+
+        private final String version;
+        private final List<InjectionElement> annotatedElements = new ArrayList<>();
+        private final List<InjectionElement> autowireByTypeElements;
+
+        /**
+         * Find the injection elements from the class up to its last super class, skipping the overridden methods
+         * as Spring does.
+         */
+        private InjectionMetadata(Class<?> clazz, String version) {
+            this.version = version;
+            List<InjectionElement> setterElements = new ArrayList<>();
+            Set<String> methodSignatures = new HashSet<>();
+            for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && InjectionElement.isInjected(field)) {
+                        annotatedElements.add(InjectionElement.forField(field));
+                    }
+                }
+                for (Method method : type.getDeclaredMethods()) {
+                    if (Modifier.isStatic(method.getModifiers()) || method.isBridge() ||
+                            method.getParameterTypes().length == 0) {
+                        continue;
+                    }
+                    if (!Modifier.isPrivate(method.getModifiers()) && !methodSignatures.add(
+                            method.getName() + Arrays.toString(method.getParameterTypes()))) {
+                        continue;
+                    }
+                    if (InjectionElement.isInjected(method)) {
+                        annotatedElements.add(InjectionElement.forParameters(method,
+                                InjectionElement.isRequired(method)));
+                    } else if (InjectionElement.isSetter(method)) {
+                        setterElements.add(InjectionElement.forParameters(method, false));
+                    }
+                }
+            }
+            for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+                if (constructor.getParameterTypes().length > 0 && InjectionElement.isInjected(constructor)) {
+                    annotatedElements.add(InjectionElement.forParameters(constructor,
+                            InjectionElement.isRequired(constructor)));
+                }
+            }
+            if (setterElements.isEmpty()) {
+                autowireByTypeElements = annotatedElements;
+            } else {
+                autowireByTypeElements = new ArrayList<>(annotatedElements);
+                autowireByTypeElements.addAll(setterElements);
+            }
+        }
+    }
+}
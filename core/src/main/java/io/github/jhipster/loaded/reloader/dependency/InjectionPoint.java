@@ -0,0 +1,104 @@
+package io.github.jhipster.loaded.reloader.dependency;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An injected field, method or constructor of a bean: an edge of the dependency graph, from the bean
+ * to the beans of the types it depends on.
+ */
+public class InjectionPoint {
+
+    private final String beanName;
+    private final InjectionElement element;
+
+    InjectionPoint(String beanName, InjectionElement element) {
+        this.beanName = beanName;
+        this.element = element;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public Member getMember() {
+        return element.getMember();
+    }
+
+    /**
+     * @return the types of the beans injected by this injection point
+     */
+    public List<Class<?>> getDependencyTypes() {
+        return element.getDependencyTypes();
+    }
+
+    /**
+     * @return true if a collection, a map or an array of beans is injected
+     */
+    public boolean isMultiple() {
+        return element.isMultiple();
+    }
+
+    /**
+     * @return false for a constructor or a final field, which can't be injected again in an existing bean
+     */
+    public boolean isReinjectable() {
+        return element.isReinjectable();
+    }
+
+    /**
+     * @param bean the bean instance, not a proxy
+     * @param dependencyAdded true if a bean this injection point depends on has been added, or if the injection
+     * point itself is new
+     * @return true if the injection point must be injected again: a field when it is null, or when one of its
+     * elements has been added, and a method when one of its dependencies has been added
+     */
+    public boolean needsInjection(Object bean, boolean dependencyAdded) {
+        return element.needsInjection(bean, dependencyAdded);
+    }
+
+    /**
+     * Resolve the dependencies of this injection point, and inject them in the bean.
+     *
+     * @param bean the bean instance, not a proxy
+     * @param beanFactory the bean factory used to resolve the dependencies
+     * @throws org.springframework.beans.factory.NoSuchBeanDefinitionException if a required dependency is missing
+     */
+    public void inject(Object bean, DefaultListableBeanFactory beanFactory) {
+        if (getMember() instanceof Constructor) {
+            throw new IllegalStateException("The constructor of the bean '" + beanName + "' can't be injected again");
+        }
+        Set<String> autowiredBeanNames = new LinkedHashSet<>();
+        element.inject(bean, beanName, beanFactory, autowiredBeanNames);
+        for (String autowiredBeanName : autowiredBeanNames) {
+            beanFactory.registerDependentBean(autowiredBeanName, beanName);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        InjectionPoint that = (InjectionPoint) o;
+        return beanName.equals(that.beanName) && element.equals(that.element);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * beanName.hashCode() + element.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return beanName + "." + getMember().getName();
+    }
+}
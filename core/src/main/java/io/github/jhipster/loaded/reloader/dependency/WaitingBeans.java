@@ -0,0 +1,208 @@
+package io.github.jhipster.loaded.reloader.dependency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The beans which can't be reloaded yet because some of their dependencies are missing, indexed by each type
+ * they are missing.
+ *
+ * A waiting bean is woken up, and retried once, when beans of all its missing types have been registered.
+ * A bean whose missing type is unknown is woken up when any bean is registered.
+ * Nothing is done while the beans are waiting: a wait which is never satisfied expires after the timeout,
+ * checked by the reloader thread, and is reported.
+ *
+ * This class is not thread-safe: it is only used by the SpringReloader, which reloads one batch at a time.
+ */
+public class WaitingBeans {
+
+    private final Logger log = LoggerFactory.getLogger(WaitingBeans.class);
+
+    private final long timeout;
+
+    private final Map<Class<?>, WaitingBean> waitingBeans = new LinkedHashMap<>();
+
+    /**
+     * The waiting beans by missing type name. The beans whose missing types are unknown are not indexed.
+     */
+    private final Map<String, Set<Class<?>>> waitingBeansByType = new LinkedHashMap<>();
+
+    /**
+     * The waiting beans missing a dependency of an unknown type.
+     */
+    private final Set<Class<?>> waitingBeansWithUnknownType = new LinkedHashSet<>();
+
+    /**
+     * @param timeout how long a bean waits for its missing dependency, in ms
+     */
+    public WaitingBeans(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Add a missing dependency to a bean, which waits for all its missing dependencies.
+     *
+     * @param clazz the class of the bean
+     * @param newBean true if the bean is a new bean, false if it is an existing bean
+     * @param missingType the type of the missing dependency, or null if it is unknown
+     */
+    public void add(Class<?> clazz, boolean newBean, Class<?> missingType) {
+        WaitingBean waitingBean = waitingBeans.get(clazz);
+        if (waitingBean == null) {
+            waitingBean = new WaitingBean(clazz, newBean, System.currentTimeMillis());
+            waitingBeans.put(clazz, waitingBean);
+        }
+        if (missingType == null) {
+            waitingBeansWithUnknownType.add(clazz);
+        } else if (waitingBean.missingTypeNames.add(missingType.getName())) {
+            Set<Class<?>> classes = waitingBeansByType.get(missingType.getName());
+            if (classes == null) {
+                classes = new LinkedHashSet<>();
+                waitingBeansByType.put(missingType.getName(), classes);
+            }
+            classes.add(clazz);
+        }
+    }
+
+    /**
+     * Stop waiting for a bean, because it has been reloaded again or deleted.
+     */
+    public void remove(Class<?> clazz) {
+        WaitingBean waitingBean = waitingBeans.remove(clazz);
+        waitingBeansWithUnknownType.remove(clazz);
+        if (waitingBean != null) {
+            for (String missingTypeName : waitingBean.missingTypeNames) {
+                Set<Class<?>> classes = waitingBeansByType.get(missingTypeName);
+                classes.remove(clazz);
+                if (classes.isEmpty()) {
+                    waitingBeansByType.remove(missingTypeName);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return waitingBeans.isEmpty();
+    }
+
+    /**
+     * Wake up the beans waiting for a type of a registered bean: its class, its super classes or its interfaces.
+     * A bean which is still missing other types keeps waiting for them. The beans missing an unknown type
+     * are all woken up, as the registered bean may be their missing dependency.
+     *
+     * @param registeredClass the class of the registered bean
+     * @return the woken beans, which are not waiting anymore
+     */
+    public List<WaitingBean> wakeUp(Class<?> registeredClass) {
+        List<WaitingBean> wokenBeans = new ArrayList<>();
+        for (Class<?> clazz : new ArrayList<>(waitingBeansWithUnknownType)) {
+            WaitingBean waitingBean = waitingBeans.get(clazz);
+            remove(clazz);
+            wokenBeans.add(waitingBean);
+        }
+        if (waitingBeansByType.isEmpty()) {
+            return wokenBeans;
+        }
+        Set<String> typeNames = new LinkedHashSet<>();
+        for (Class<?> type = registeredClass; type != null; type = type.getSuperclass()) {
+            typeNames.add(type.getName());
+        }
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(registeredClass)) {
+            typeNames.add(type.getName());
+        }
+        for (String typeName : typeNames) {
+            Set<Class<?>> classes = waitingBeansByType.remove(typeName);
+            if (classes != null) {
+                for (Class<?> clazz : classes) {
+                    WaitingBean waitingBean = waitingBeans.get(clazz);
+                    if (waitingBean == null) {
+                        // woken up as it was also missing an unknown type
+                        continue;
+                    }
+                    waitingBean.missingTypeNames.remove(typeName);
+                    if (waitingBean.missingTypeNames.isEmpty()) {
+                        wokenBeans.add(waitingBeans.remove(clazz));
+                    }
+                }
+            }
+        }
+        return wokenBeans;
+    }
+
+    /**
+     * Wake up all the waiting beans, when their missing dependencies may have been registered without being
+     * reloaded themselves, as the repositories of the reloaded entities.
+     *
+     * @return the woken beans, which are not waiting anymore
+     */
+    public List<WaitingBean> wakeUpAll() {
+        List<WaitingBean> wokenBeans = new ArrayList<>(waitingBeans.values());
+        waitingBeans.clear();
+        waitingBeansByType.clear();
+        waitingBeansWithUnknownType.clear();
+        return wokenBeans;
+    }
+
+    /**
+     * @return when the next wait expires, in ms, or 0 if no bean is waiting
+     */
+    public long getNextExpiry() {
+        long nextExpiry = 0;
+        for (WaitingBean waitingBean : waitingBeans.values()) {
+            long expiry = waitingBean.since + timeout;
+            if (nextExpiry == 0 || expiry < nextExpiry) {
+                nextExpiry = expiry;
+            }
+        }
+        return nextExpiry;
+    }
+
+    /**
+     * Stop waiting for the beans which have waited longer than the timeout, and report them.
+     */
+    public void expire() {
+        long now = System.currentTimeMillis();
+        for (WaitingBean waitingBean : new ArrayList<>(waitingBeans.values())) {
+            if (now - waitingBean.since >= timeout) {
+                remove(waitingBean.clazz);
+                log.warn("JHipster reload - Spring bean '{}' has waited {} s for beans of types {}, which have " +
+                        "not been registered: it is not reloaded. Check that these types are Spring beans, or " +
+                        "restart the application.", waitingBean.clazz.getName(), (now - waitingBean.since) / 1000,
+                        waitingBean.missingTypeNames.isEmpty() ? "unknown" : waitingBean.missingTypeNames);
+            }
+        }
+    }
+
+    /**
+     * A bean waiting for its missing dependencies.
+     */
+    public static class WaitingBean {
+
+        private final Class<?> clazz;
+        private final boolean newBean;
+        private final Set<String> missingTypeNames = new LinkedHashSet<>();
+        private final long since;
+
+        private WaitingBean(Class<?> clazz, boolean newBean, long since) {
+            this.clazz = clazz;
+            this.newBean = newBean;
+            this.since = since;
+        }
+
+        public Class<?> getBeanClass() {
+            return clazz;
+        }
+
+        public boolean isNewBean() {
+            return newBean;
+        }
+    }
+}
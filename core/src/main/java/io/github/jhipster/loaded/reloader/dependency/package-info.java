@@ -0,0 +1,4 @@
+/**
+ * Hot reloading dependency graph of the Spring beans.
+ */
+package io.github.jhipster.loaded.reloader.dependency;
@@ -10,6 +10,7 @@ import org.springframework.core.Ordered;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.method.HandlerMethodSelector;
 import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
@@ -25,7 +26,7 @@ import java.util.*;
  *
  * Each time, a controller is compiled this handler is called and the new controllers will be re-mapped
  */
-public class JHipsterHandlerMappingListener extends RequestMappingHandlerMapping implements SpringListener, Ordered {
+public class JHipsterHandlerMappingListener extends RequestMappingHandlerMapping implements RemovingSpringListener, Ordered {
 
     private final Logger log = LoggerFactory.getLogger(JHipsterHandlerMappingListener.class);
 
@@ -63,6 +64,20 @@ public class JHipsterHandlerMappingListener extends RequestMappingHandlerMapping
         }
     }
 
+    @Override
+    public void removeBean(Class<?> clazz) {
+        Class<?> userType = ClassUtils.getUserClass(clazz);
+        newControllers.remove(userType);
+
+        // the mappings of the existing controllers are held by the default RequestMappingHandlerMapping
+        for (RequestMappingHandlerMapping handlerMapping :
+                applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            if (handlerMapping != this) {
+                removeMappings(handlerMapping, userType);
+            }
+        }
+    }
+
     @Override
     public void process() {
         // Clear existing mapping to register new classes
@@ -96,6 +111,48 @@ public class JHipsterHandlerMappingListener extends RequestMappingHandlerMapping
         }
     }
 
+    /**
+     * Remove the mappings of a controller from the two maps used to map the urls and the methods.
+     */
+    private void removeMappings(AbstractHandlerMethodMapping handlerMapping, Class<?> userType) {
+        try {
+            final Field handlerMethodsField = ReflectionUtils.findField(AbstractHandlerMethodMapping.class, "handlerMethods");
+            handlerMethodsField.setAccessible(true);
+            Map<Object, HandlerMethod> handlerMethods = (Map<Object, HandlerMethod>) handlerMethodsField.get(handlerMapping);
+
+            List<Object> removedMappings = new ArrayList<>();
+            for (Iterator<Map.Entry<Object, HandlerMethod>> it = handlerMethods.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Object, HandlerMethod> entry = it.next();
+                if (ClassUtils.getUserClass(entry.getValue().getBeanType()) == userType) {
+                    removedMappings.add(entry.getKey());
+                    it.remove();
+                }
+            }
+            if (removedMappings.isEmpty()) {
+                return;
+            }
+
+            final Field urlMapField = ReflectionUtils.findField(AbstractHandlerMethodMapping.class, "urlMap");
+            urlMapField.setAccessible(true);
+            Map<String, List<Object>> urlMap = (Map<String, List<Object>>) urlMapField.get(handlerMapping);
+
+            for (Iterator<List<Object>> it = urlMap.values().iterator(); it.hasNext(); ) {
+                List<Object> mappings = it.next();
+                mappings.removeAll(removedMappings);
+                if (mappings.isEmpty()) {
+                    it.remove();
+                }
+            }
+            for (Object mapping : removedMappings) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("Remove Mapped \"" + mapping + "\"");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to remove the mappings of the controller '{}'", userType.getName(), e);
+        }
+    }
+
     /**
      * Clear the two maps used to map the urls and the methods.
      */
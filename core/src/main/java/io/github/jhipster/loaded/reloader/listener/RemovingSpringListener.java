@@ -0,0 +1,15 @@
+package io.github.jhipster.loaded.reloader.listener;
+
+/**
+ * Listener which is also told when a spring bean has been removed, because its class file has been deleted.
+ * The listeners which do not implement it are not told.
+ */
+public interface RemovingSpringListener extends SpringListener {
+
+    /**
+     * Call when the class file of a spring bean has been deleted
+     *
+     * @param clazz class of the deleted spring bean
+     */
+    void removeBean(Class<?> clazz);
+}
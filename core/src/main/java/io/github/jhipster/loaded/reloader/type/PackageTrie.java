@@ -0,0 +1,99 @@
+package io.github.jhipster.loaded.reloader.type;
+
+import org.springframework.core.env.Environment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trie of package names, indexed by package segments.
+ *
+ * It checks if a class is in one of the packages, or in one of their sub-packages, in a single pass
+ * over the class name. Packages are compared segment by segment, so "com.mycompany.myapp" does not
+ * contain "com.mycompany.myapp2".
+ */
+public class PackageTrie {
+
+    private final Node root = new Node();
+
+    private boolean empty = true;
+
+    /**
+     * The packages must be defined in the application-dev.yml as follow
+     *   hotReload:
+     *     package:
+     *       domain: com.mycompany.myapp.domain
+     * or, for several packages
+     *   hotReload:
+     *     package:
+     *       domain:
+     *         - com.mycompany.myapp.domain
+     *         - com.mycompany.shared.domain
+     *
+     * @param env the environment used to retrieve the packages
+     * @param name the name of the property
+     * @return the trie of the packages
+     */
+    public static PackageTrie fromProperty(Environment env, String name) {
+        PackageTrie packageTrie = new PackageTrie();
+        String value = env.getProperty(name);
+        if (value != null) {
+            packageTrie.add(value);
+        }
+        int i = 0;
+        value = env.getProperty(name + "[" + i + "]");
+        while (value != null) {
+            packageTrie.add(value);
+            i++;
+            value = env.getProperty(name + "[" + i + "]");
+        }
+        return packageTrie;
+    }
+
+    public void add(String packageName) {
+        Node node = root;
+        for (String segment : packageName.trim().split("\\.")) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.terminal = true;
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param className the name of a class, with dots
+     * @return true if the class is in one of the packages or in one of their sub-packages
+     */
+    public boolean contains(String className) {
+        Node node = root;
+        int start = 0;
+        int end = className.indexOf('.');
+        // the last segment is the simple name of the class
+        while (end >= 0) {
+            node = node.children.get(className.substring(start, end));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            start = end + 1;
+            end = className.indexOf('.', start);
+        }
+        return false;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean terminal;
+    }
+}
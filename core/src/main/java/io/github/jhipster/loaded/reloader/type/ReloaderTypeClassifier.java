@@ -0,0 +1,297 @@
+package io.github.jhipster.loaded.reloader.type;
+
+import io.github.jhipster.loaded.bytecode.ClassFileInfo;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Finds the reloader type of a class from its bytecode, without loading or initializing anything.
+ *
+ * The annotations of the class, of its super classes and interfaces, and their meta-annotations are read
+ * from the class files, like AnnotationUtils.findAnnotation would find them by reflection.
+ * A deleted class, whose class file does not exist anymore, keeps the type found for its last version.
+ * The result is cached by class name and CRC32 of the class file: a class reloaded with the same bytes is
+ * classified again without parsing anything. The class files read from JARs (the annotations, and the super
+ * types from the libraries) are parsed only once.
+ */
+public class ReloaderTypeClassifier {
+
+    private static final String REPOSITORY = "org.springframework.stereotype.Repository";
+    private static final String NO_REPOSITORY_BEAN = "org.springframework.data.repository.NoRepositoryBean";
+    private static final String DATA_REPOSITORY = "org.springframework.data.repository.Repository";
+    private static final String SERVICE = "org.springframework.stereotype.Service";
+    private static final String CONTROLLER = "org.springframework.stereotype.Controller";
+    private static final String REST_CONTROLLER = "org.springframework.web.bind.annotation.RestController";
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+    private static final String ENTITY = "javax.persistence.Entity";
+    private static final String DOCUMENT = "org.springframework.data.mongodb.core.mapping.Document";
+
+    private final Logger log = LoggerFactory.getLogger(ReloaderTypeClassifier.class);
+
+    private final PackageTrie domainPackages;
+    private final PackageTrie dtoPackages;
+
+    private final ConcurrentMap<String, Classification> classifications = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ClassFileInfo> libraryTypes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<String>> metaAnnotations = new ConcurrentHashMap<>();
+
+    public ReloaderTypeClassifier(PackageTrie domainPackages, PackageTrie dtoPackages) {
+        this.domainPackages = domainPackages;
+        this.dtoPackages = dtoPackages;
+    }
+
+    /**
+     * @param typename the name of the class
+     * @param clazz the class, only used to find its class loader
+     * @return the reloader type of the class, or null if the class does not need to be reloaded
+     */
+    public ReloaderType classify(String typename, Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        byte[] bytes = readClassFile(typename, classLoader);
+        if (bytes == null) {
+            log.trace("The class file of {} can't be read, it is not reloaded", typename);
+            return null;
+        }
+        return classify(typename, bytes, classLoader);
+    }
+
+    /**
+     * Find the reloader type of a deleted class, whose class file can't be read anymore: the type found for
+     * its last version is used, or the annotations of the loaded class if it has never been reloaded.
+     *
+     * @param typename the name of the class
+     * @param clazz the deleted class
+     * @return the reloader type of the class, or null if the class does not need to be unregistered
+     */
+    public ReloaderType classifyDeleted(String typename, Class<?> clazz) {
+        Classification classification = classifications.remove(typename);
+        if (classification != null) {
+            return classification.reloaderType;
+        }
+        Set<String> superTypes = new HashSet<>();
+        Set<String> annotations = new HashSet<>();
+        collectTypeHierarchy(clazz, superTypes, annotations);
+        return classify(typename, superTypes, annotations);
+    }
+
+    /**
+     * @param typename the name of the class
+     * @param bytes the content of the class file
+     * @param classLoader the class loader used to read the class files of the super types and annotations
+     * @return the reloader type of the class, or null if the class does not need to be reloaded
+     */
+    public ReloaderType classify(String typename, byte[] bytes, ClassLoader classLoader) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        Classification classification = classifications.get(typename);
+        if (classification != null && classification.crc == crc.getValue()) {
+            return classification.reloaderType;
+        }
+
+        ReloaderType reloaderType;
+        try {
+            reloaderType = classify(typename, ClassFileInfo.parse(bytes), classLoader);
+        } catch (IllegalArgumentException e) {
+            log.warn("Failed to read the class file of {}", typename, e);
+            reloaderType = null;
+        }
+        classifications.put(typename, new Classification(crc.getValue(), reloaderType));
+        return reloaderType;
+    }
+
+    private ReloaderType classify(String typename, ClassFileInfo classFileInfo, ClassLoader classLoader) {
+        Set<String> superTypes = new HashSet<>();
+        Set<String> annotations = new HashSet<>();
+        collectTypeHierarchy(classFileInfo, classLoader, superTypes, annotations);
+        return classify(typename, superTypes, annotations);
+    }
+
+    private ReloaderType classify(String typename, Set<String> superTypes, Set<String> annotations) {
+        if (annotations.contains(REPOSITORY) || annotations.contains(NO_REPOSITORY_BEAN) ||
+                superTypes.contains(DATA_REPOSITORY)) {
+            log.trace("{} is a Spring Repository", typename);
+            return RepositoryReloaderType.instance;
+        } else if (annotations.contains(SERVICE)) {
+            log.trace("{} is a Spring Service", typename);
+            return ServiceReloaderType.instance;
+        } else if (annotations.contains(CONTROLLER) || annotations.contains(REST_CONTROLLER)) {
+            log.trace("{} is a Spring Controller", typename);
+            return ControllerReloaderType.instance;
+        } else if (annotations.contains(COMPONENT)) {
+            log.trace("{} is a Spring Component", typename);
+            return ComponentReloaderType.instance;
+        } else if (domainPackages.contains(typename)) {
+            log.trace("{} is in the JPA package, checking if it is an entity", typename);
+            if (annotations.contains(ENTITY)) {
+                log.trace("{} is a JPA Entity", typename);
+                return EntityReloaderType.instance;
+            }
+            if (annotations.contains(DOCUMENT)) {
+                log.trace("{} is a MongoDB Entity", typename);
+                return EntityReloaderType.instance;
+            }
+        } else if (dtoPackages.contains(typename)) {
+            log.debug("{}  is a REST DTO", typename);
+            return RestDtoReloaderType.instance;
+        }
+        return null;
+    }
+
+    /**
+     * Collect the super types of a class, and the annotations (with their meta-annotations) of the class
+     * and of its super types.
+     */
+    private void collectTypeHierarchy(ClassFileInfo classFileInfo, ClassLoader classLoader,
+                                      Set<String> superTypes, Set<String> annotations) {
+        for (String annotation : classFileInfo.getAnnotations()) {
+            annotations.addAll(getMetaAnnotations(annotation, classLoader));
+        }
+        List<String> directSuperTypes = new ArrayList<>(classFileInfo.getInterfaces());
+        if (classFileInfo.getSuperName() != null) {
+            directSuperTypes.add(classFileInfo.getSuperName());
+        }
+        for (String superType : directSuperTypes) {
+            if (!superTypes.add(superType) || isPlatformType(superType)) {
+                continue;
+            }
+            ClassFileInfo superTypeInfo = readType(superType, classLoader);
+            if (superTypeInfo != null) {
+                collectTypeHierarchy(superTypeInfo, classLoader, superTypes, annotations);
+            }
+        }
+    }
+
+    /**
+     * Collect the super types and the annotations of a loaded class, by reflection.
+     */
+    private void collectTypeHierarchy(Class<?> clazz, Set<String> superTypes, Set<String> annotations) {
+        for (Annotation annotation : clazz.getDeclaredAnnotations()) {
+            collectMetaAnnotations(annotation.annotationType(), annotations);
+        }
+        List<Class<?>> directSuperTypes = new ArrayList<>(Arrays.asList(clazz.getInterfaces()));
+        if (clazz.getSuperclass() != null) {
+            directSuperTypes.add(clazz.getSuperclass());
+        }
+        for (Class<?> superType : directSuperTypes) {
+            if (superTypes.add(superType.getName()) && !isPlatformType(superType.getName())) {
+                collectTypeHierarchy(superType, superTypes, annotations);
+            }
+        }
+    }
+
+    private void collectMetaAnnotations(Class<? extends Annotation> annotationType, Set<String> result) {
+        if (!result.add(annotationType.getName()) || isPlatformType(annotationType.getName())) {
+            return;
+        }
+        for (Annotation metaAnnotation : annotationType.getDeclaredAnnotations()) {
+            collectMetaAnnotations(metaAnnotation.annotationType(), result);
+        }
+    }
+
+    /**
+     * @return the annotation and its meta-annotations, recursively
+     */
+    private Set<String> getMetaAnnotations(String annotation, ClassLoader classLoader) {
+        Set<String> result = metaAnnotations.get(annotation);
+        if (result != null) {
+            return result;
+        }
+        result = new HashSet<>();
+        collectMetaAnnotations(annotation, classLoader, result);
+        result = Collections.unmodifiableSet(result);
+        metaAnnotations.putIfAbsent(annotation, result);
+        return result;
+    }
+
+    private void collectMetaAnnotations(String annotation, ClassLoader classLoader, Set<String> result) {
+        if (!result.add(annotation) || isPlatformType(annotation)) {
+            return;
+        }
+        ClassFileInfo annotationInfo = readType(annotation, classLoader);
+        if (annotationInfo != null) {
+            for (String metaAnnotation : annotationInfo.getAnnotations()) {
+                collectMetaAnnotations(metaAnnotation, classLoader, result);
+            }
+        }
+    }
+
+    /**
+     * Read the structure of a super type or of an annotation. The types read from a JAR are cached,
+     * the types of the application may change and are read again.
+     */
+    private ClassFileInfo readType(String typename, ClassLoader classLoader) {
+        ClassFileInfo classFileInfo = libraryTypes.get(typename);
+        if (classFileInfo != null) {
+            return classFileInfo;
+        }
+        URL url = getClassFileUrl(typename, classLoader);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream in = url.openStream()) {
+            classFileInfo = ClassFileInfo.parse(IOUtils.toByteArray(in));
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Failed to read the class file of {}", typename);
+            return null;
+        }
+        if ("jar".equals(url.getProtocol())) {
+            libraryTypes.putIfAbsent(typename, classFileInfo);
+        }
+        return classFileInfo;
+    }
+
+    /**
+     * Read the current class file of a class, with its class loader.
+     *
+     * @return the content of the class file, or null if it can't be read
+     */
+    public static byte[] readClassFile(String typename, ClassLoader classLoader) {
+        URL url = getClassFileUrl(typename, classLoader);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream in = url.openStream()) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static URL getClassFileUrl(String typename, ClassLoader classLoader) {
+        String resourceName = typename.replace('.', '/') + ".class";
+        return classLoader == null ? ClassLoader.getSystemResource(resourceName) : classLoader.getResource(resourceName);
+    }
+
+    /**
+     * @return true for the types of the JDK, which never have a Spring annotation
+     */
+    private static boolean isPlatformType(String typename) {
+        return typename.startsWith("java.");
+    }
+
+    private static class Classification {
+
+        private final long crc;
+        private final ReloaderType reloaderType;
+
+        private Classification(long crc, ReloaderType reloaderType) {
+            this.crc = crc;
+            this.reloaderType = reloaderType;
+        }
+    }
+}
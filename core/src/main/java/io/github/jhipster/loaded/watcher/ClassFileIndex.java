@@ -0,0 +1,255 @@
+package io.github.jhipster.loaded.watcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps a digest of the last version seen of each class file.
+ *
+ * Compilers and IDEs often rewrite class files with the same bytes: these rewrites must not trigger a reload.
+ *
+ * The entries are also indexed by directory, so the entries of a deleted directory are found by walking its
+ * subtree only.
+ */
+public class ClassFileIndex {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Logger log = LoggerFactory.getLogger(ClassFileIndex.class);
+
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The indexed children of each directory: its class files and the directories containing class files.
+     * Only updated with the lock of the index.
+     */
+    private final Map<Path, Set<Path>> children = new HashMap<>();
+
+    /**
+     * Compute the 64-bit FNV-1a hash of the bytes.
+     */
+    public static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public static boolean isClassFile(Path file) {
+        return file.getFileName() != null && file.getFileName().toString().endsWith(".class");
+    }
+
+    /**
+     * Store the digest of an existing class file, without considering it as changed.
+     */
+    public void seed(Path file, BasicFileAttributes attributes) {
+        try {
+            put(file, new Entry(attributes, hash(ClassFileReader.read(file))));
+        } catch (IOException e) {
+            log.debug("Failed to read the class file '{}'", file);
+        }
+    }
+
+    /**
+     * Check if the content of the file is different from the last version seen, and store the new digest.
+     * Files which are not class files, or which can't be read, are always considered as changed.
+     *
+     * @param file the changed file
+     * @return true if the file has changed, false if its bytes are the same as the last version seen
+     */
+    public boolean update(Path file) {
+        if (!isClassFile(file)) {
+            return true;
+        }
+        try {
+            return update(file, ClassFileReader.read(file));
+        } catch (IOException e) {
+            log.debug("Failed to read the class file '{}'", file);
+            return true;
+        }
+    }
+
+    /**
+     * Check if the content of the class file, already read by the caller, is different from the last version seen,
+     * and store the new digest.
+     *
+     * @param file the changed class file
+     * @param bytes the content of the class file
+     * @return true if the file has changed, false if its bytes are the same as the last version seen
+     */
+    public boolean update(Path file, byte[] bytes) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            Entry entry = new Entry(attributes, hash(bytes));
+            Entry previous = entries.put(file, entry);
+            if (previous == null) {
+                addChild(file);
+            }
+            return previous == null || previous.hash != entry.hash;
+        } catch (IOException e) {
+            log.debug("Failed to read the attributes of the class file '{}'", file);
+            return true;
+        }
+    }
+
+    /**
+     * Store an entry which is known to be up to date, from a persisted index for example.
+     */
+    public void put(Path file, Entry entry) {
+        if (entries.put(file, entry) == null) {
+            addChild(file);
+        }
+    }
+
+    /**
+     * @return the entry of the class file, or the entries of the class files under the given folder
+     */
+    public Map<Path, Entry> getEntries(Path root) {
+        Map<Path, Entry> rootEntries = new HashMap<>();
+        Entry rootEntry = entries.get(root);
+        if (rootEntry != null) {
+            rootEntries.put(root, rootEntry);
+            return rootEntries;
+        }
+        synchronized (children) {
+            Deque<Path> directories = new ArrayDeque<>();
+            directories.add(root);
+            while (!directories.isEmpty()) {
+                Set<Path> directoryChildren = children.get(directories.poll());
+                if (directoryChildren == null) {
+                    continue;
+                }
+                for (Path child : directoryChildren) {
+                    Entry entry = entries.get(child);
+                    if (entry != null) {
+                        rootEntries.put(child, entry);
+                    } else {
+                        directories.add(child);
+                    }
+                }
+            }
+        }
+        return rootEntries;
+    }
+
+    /**
+     * Forget a deleted class file.
+     *
+     * @return true if the file was in the index
+     */
+    public boolean remove(Path file) {
+        if (entries.remove(file) == null) {
+            return false;
+        }
+        synchronized (children) {
+            if (entries.containsKey(file)) {
+                // the file has been indexed again in the meantime
+                return true;
+            }
+            // remove the file, then the directories left empty
+            Path child = file;
+            for (Path parent = file.getParent(); parent != null; parent = parent.getParent()) {
+                Set<Path> parentChildren = children.get(parent);
+                if (parentChildren == null) {
+                    break;
+                }
+                parentChildren.remove(child);
+                if (!parentChildren.isEmpty()) {
+                    break;
+                }
+                children.remove(parent);
+                child = parent;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(Path file) {
+        return entries.containsKey(file);
+    }
+
+    /**
+     * Check if the size and the last modified time of the file are the same as in the index,
+     * without reading the file.
+     */
+    public boolean isUpToDate(Path file, BasicFileAttributes attributes) {
+        Entry entry = entries.get(file);
+        return entry != null && entry.size == attributes.size() &&
+                entry.lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Add a new class file to the children of its directory, and the directories up to the first one
+     * already indexed.
+     */
+    private void addChild(Path file) {
+        synchronized (children) {
+            Path child = file;
+            for (Path parent = file.getParent(); parent != null; parent = parent.getParent()) {
+                Set<Path> parentChildren = children.get(parent);
+                boolean indexed = parentChildren != null;
+                if (!indexed) {
+                    parentChildren = new HashSet<>();
+                    children.put(parent, parentChildren);
+                }
+                parentChildren.add(child);
+                if (indexed) {
+                    break;
+                }
+                child = parent;
+            }
+        }
+    }
+
+    /**
+     * The size, last modified time and hash of a class file.
+     */
+    public static class Entry {
+
+        private final long size;
+        private final long lastModified;
+        private final long hash;
+
+        public Entry(long size, long lastModified, long hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        private Entry(BasicFileAttributes attributes, long hash) {
+            this(attributes.size(), attributes.lastModifiedTime().toMillis(), hash);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.jhipster.loaded.watcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the class file index of a watch folder on disk, so it survives a restart of the JVM.
+ *
+ * The index is a compact binary file, read through a memory-mapped buffer:
+ * <pre>
+ *   int magic, int version, int count
+ *   count x (short path length, UTF-8 relative path, long size, long last modified, long hash)
+ * </pre>
+ */
+public class ClassFileIndexStore {
+
+    private static final int MAGIC = 0x4a484c49;
+    private static final int VERSION = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Logger log = LoggerFactory.getLogger(ClassFileIndexStore.class);
+
+    private final Path indexDirectory;
+
+    public ClassFileIndexStore(Path indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    /**
+     * Load the index of a watch folder.
+     *
+     * @param root the watch folder
+     * @return the entries of the index, by class file; empty if there is no valid index
+     */
+    public Map<Path, ClassFileIndex.Entry> load(Path root) {
+        Map<Path, ClassFileIndex.Entry> entries = new HashMap<>();
+        Path indexFile = getIndexFile(root);
+        if (!Files.isRegularFile(indexFile)) {
+            return entries;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.debug("The index file '{}' is not valid, it will be rebuilt", indexFile);
+                return entries;
+            }
+            int count = buffer.getInt();
+            byte[] pathBytes = new byte[0xffff];
+            for (int i = 0; i < count; i++) {
+                int pathLength = buffer.getShort() & 0xffff;
+                buffer.get(pathBytes, 0, pathLength);
+                Path file = root.resolve(new String(pathBytes, 0, pathLength, UTF_8));
+                entries.put(file, new ClassFileIndex.Entry(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+            }
+        } catch (Exception e) {
+            log.debug("Failed to read the index file '{}', it will be rebuilt", indexFile, e);
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Save the index of a watch folder. The file is written next to the current one,
+     * then moved, so a crash never leaves a truncated index.
+     *
+     * @param root the watch folder
+     * @param entries the entries of the index, by class file
+     */
+    public void save(Path root, Map<Path, ClassFileIndex.Entry> entries) {
+        Path indexFile = getIndexFile(root);
+        try {
+            Files.createDirectories(indexDirectory);
+            Path tmpFile = Files.createTempFile(indexDirectory, indexFile.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+                for (Map.Entry<Path, ClassFileIndex.Entry> entry : entries.entrySet()) {
+                    byte[] pathBytes = root.relativize(entry.getKey()).toString().replace(File.separator, "/").getBytes(UTF_8);
+                    if (buffer.remaining() < 2 + pathBytes.length + 3 * 8) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    ClassFileIndex.Entry indexEntry = entry.getValue();
+                    buffer.putShort((short) pathBytes.length).put(pathBytes)
+                            .putLong(indexEntry.getSize())
+                            .putLong(indexEntry.getLastModified())
+                            .putLong(indexEntry.getHash());
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+            Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("The index of the watch folder '{}' has been saved in '{}'", root, indexFile);
+        } catch (IOException e) {
+            log.warn("Failed to save the index of the watch folder '{}'", root, e);
+        }
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Path getIndexFile(Path root) {
+        String absoluteRoot = root.toAbsolutePath().normalize().toString();
+        return indexDirectory.resolve(Long.toHexString(ClassFileIndex.hash(absoluteRoot.getBytes(UTF_8))) + ".idx");
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads class files with a single read through a FileChannel.
+ *
+ * The large class files are memory-mapped: their bytes are copied once from the page cache,
+ * without an intermediate buffer.
+ */
+public final class ClassFileReader {
+
+    /**
+     * Size from which a class file is memory-mapped.
+     */
+    private static final int MMAP_THRESHOLD = 64 * 1024;
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * @param file the class file
+     * @return the content of the file
+     * @throws IOException if the file can't be read
+     */
+    public static byte[] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The file '" + file + "' is too large");
+            }
+            byte[] bytes = new byte[(int) size];
+            if (size >= MMAP_THRESHOLD) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                buffer.get(bytes);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("The file '" + file + "' has been truncated while being read");
+                    }
+                }
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+
+/**
+ * A change on a file, ready to be sent to the file watcher listeners.
+ */
+public class FileChange {
+
+    private final String parentFolder;
+    private final Path file;
+    private final WatchEvent.Kind kind;
+
+    public FileChange(String parentFolder, Path file, WatchEvent.Kind kind) {
+        this.parentFolder = parentFolder;
+        this.file = file;
+        this.kind = kind;
+    }
+
+    public String getParentFolder() {
+        return parentFolder;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public WatchEvent.Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name() + " " + file;
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.jhipster.loaded.watcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Stages the raw file system events before they are sent to the listeners.
+ *
+ * The events are merged per path. A file is dispatched only once, when no event has been received
+ * for the quiet period and its size and last modified time did not change between two checks:
+ * a class file still being written by the compiler is never dispatched.
+ *
+ * A deletion is dispatched once the file is still missing after the quiet period; a file created and
+ * deleted during the quiet period is never dispatched.
+ */
+public class FileChangeCoalescer {
+
+    private final Logger log = LoggerFactory.getLogger(FileChangeCoalescer.class);
+
+    private final long quietPeriod;
+
+    private final Map<Path, PendingChange> pendingChanges = new LinkedHashMap<>();
+
+    /**
+     * @param quietPeriod how long (in ms) a file must stay untouched before being dispatched
+     */
+    public FileChangeCoalescer(long quietPeriod) {
+        this.quietPeriod = quietPeriod;
+    }
+
+    public long getQuietPeriod() {
+        return quietPeriod;
+    }
+
+    public synchronized boolean hasPendingChanges() {
+        return !pendingChanges.isEmpty();
+    }
+
+    /**
+     * Stage an event. A creation followed by modifications is kept as a creation, a deletion followed
+     * by a creation is kept as a modification.
+     */
+    public synchronized void stage(String parentFolder, Path file, WatchEvent.Kind kind) {
+        PendingChange pendingChange = pendingChanges.get(file);
+        if (pendingChange == null) {
+            pendingChanges.put(file, new PendingChange(parentFolder, file, kind));
+            return;
+        }
+        log.trace("Merging the event {} on the file '{}'", kind.name(), file);
+        if (kind == ENTRY_DELETE) {
+            if (pendingChange.kind == ENTRY_CREATE) {
+                log.trace("The file '{}' has been created then deleted, nothing to do", file);
+                pendingChanges.remove(file);
+                return;
+            }
+            pendingChange.kind = ENTRY_DELETE;
+        } else if (pendingChange.kind == ENTRY_DELETE) {
+            pendingChange.kind = ENTRY_MODIFY;
+        } else if (kind == ENTRY_CREATE) {
+            pendingChange.kind = ENTRY_CREATE;
+        }
+        pendingChange.touch();
+    }
+
+    /**
+     * Postpone the dispatch of the new directory containing a file, which will be loaded at once.
+     *
+     * @return true if the file is in a new directory which has not been dispatched yet
+     */
+    public synchronized boolean touchNewDirectory(Path file) {
+        for (Path dir = file.getParent(); dir != null; dir = dir.getParent()) {
+            PendingChange pendingChange = pendingChanges.get(dir);
+            if (pendingChange != null && pendingChange.kind == ENTRY_CREATE) {
+                pendingChange.touch();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove and return the changes which are stable: quiet for the quiet period, with the same size
+     * and last modified time as during the previous check.
+     */
+    public synchronized List<FileChange> pollStableChanges() {
+        List<FileChange> stableChanges = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (Iterator<PendingChange> it = pendingChanges.values().iterator(); it.hasNext(); ) {
+            PendingChange pendingChange = it.next();
+            if (now - pendingChange.lastEvent < quietPeriod) {
+                continue;
+            }
+            BasicFileAttributes attributes = readAttributes(pendingChange.file);
+            if (pendingChange.kind == ENTRY_DELETE) {
+                if (attributes == null) {
+                    stableChanges.add(new FileChange(pendingChange.parentFolder, pendingChange.file, ENTRY_DELETE));
+                    it.remove();
+                    continue;
+                }
+                // the file has been created again
+                pendingChange.kind = ENTRY_MODIFY;
+            }
+            if (attributes == null) {
+                log.trace("The file '{}' does not exist anymore, nothing to do", pendingChange.file);
+                it.remove();
+            } else if (attributes.size() != pendingChange.size ||
+                    attributes.lastModifiedTime().toMillis() != pendingChange.lastModified) {
+                log.trace("The file '{}' is still being written", pendingChange.file);
+                pendingChange.touch(attributes);
+            } else {
+                stableChanges.add(new FileChange(pendingChange.parentFolder, pendingChange.file, pendingChange.kind));
+                it.remove();
+            }
+        }
+        return stableChanges;
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class PendingChange {
+
+        private final String parentFolder;
+        private final Path file;
+        private WatchEvent.Kind kind;
+        private long lastEvent;
+        private long size = -1;
+        private long lastModified = -1;
+
+        private PendingChange(String parentFolder, Path file, WatchEvent.Kind kind) {
+            this.parentFolder = parentFolder;
+            this.file = file;
+            this.kind = kind;
+            touch();
+        }
+
+        private void touch() {
+            touch(readAttributes(file));
+        }
+
+        private void touch(BasicFileAttributes attributes) {
+            lastEvent = System.currentTimeMillis();
+            if (attributes != null) {
+                size = attributes.size();
+                lastModified = attributes.lastModifiedTime().toMillis();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Keeps the CRC32 of the class entries of each watched JAR.
+ *
+ * The CRC32 are read from the central directory of the JAR: the entries are not decompressed, so a new
+ * version of a JAR is compared with the previous one without reading its classes.
+ */
+public class JarEntryIndex {
+
+    private final ConcurrentMap<Path, Map<String, Long>> jars = new ConcurrentHashMap<>();
+
+    /**
+     * Store the CRC32 of the current version of a JAR, without considering its entries as changed.
+     */
+    public void seed(Path jar) throws IOException {
+        jars.put(jar, readCrcs(jar));
+    }
+
+    /**
+     * Compare a new version of a JAR with the previous one, and store its CRC32.
+     *
+     * @param jar the JAR which has been replaced
+     * @return the changed class entries, by entry name
+     */
+    public Map<String, WatchEvent.Kind> diff(Path jar) throws IOException {
+        Map<String, Long> crcs = readCrcs(jar);
+        Map<String, Long> previousCrcs = jars.put(jar, crcs);
+        if (previousCrcs == null) {
+            previousCrcs = new HashMap<>();
+        }
+
+        Map<String, WatchEvent.Kind> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : crcs.entrySet()) {
+            Long previousCrc = previousCrcs.get(entry.getKey());
+            if (previousCrc == null) {
+                changes.put(entry.getKey(), ENTRY_CREATE);
+            } else if (!previousCrc.equals(entry.getValue())) {
+                changes.put(entry.getKey(), ENTRY_MODIFY);
+            }
+        }
+        for (String previousEntry : previousCrcs.keySet()) {
+            if (!crcs.containsKey(previousEntry)) {
+                changes.put(previousEntry, ENTRY_DELETE);
+            }
+        }
+        return changes;
+    }
+
+    private static Map<String, Long> readCrcs(Path jar) throws IOException {
+        Map<String, Long> crcs = new HashMap<>();
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    crcs.put(entry.getName(), entry.getCrc());
+                }
+            }
+        }
+        return crcs;
+    }
+}
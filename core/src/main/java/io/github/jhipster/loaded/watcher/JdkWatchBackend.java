@@ -0,0 +1,97 @@
+package io.github.jhipster.loaded.watcher;
+
+import com.sun.nio.file.SensitivityWatchEventModifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A backend using the JDK WatchService: the events are sent by the operating system (inotify on Linux).
+ */
+public class JdkWatchBackend implements WatchBackend {
+
+    private final Logger log = LoggerFactory.getLogger(JdkWatchBackend.class);
+
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+    public JdkWatchBackend(FileSystem fileSystem) throws IOException {
+        watcher = fileSystem.newWatchService();
+    }
+
+    /**
+     * Register the given directory with the WatchService.
+     */
+    @Override
+    public void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watcher, new WatchEvent.Kind[]{ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE}, SensitivityWatchEventModifier.HIGH);
+        Path prev = keys.get(key);
+        if (prev == null) {
+            log.debug("Directory : '{}' will be monitored for changes", dir);
+        }
+        keys.put(key, dir);
+    }
+
+    @Override
+    public void poll(long timeout, Callback callback) throws InterruptedException {
+        // wait for key to be signalled
+        WatchKey key;
+        if (timeout < 0) {
+            key = watcher.take();
+        } else {
+            key = watcher.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+        if (key == null) {
+            return;
+        }
+
+        Path dir = keys.get(key);
+        if (dir == null) {
+            return;
+        }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind kind = event.kind();
+
+            if (kind == OVERFLOW) {
+                callback.onOverflow(dir);
+                continue;
+            }
+
+            // Context for directory entry event is the file name of entry
+            // noinspection unchecked
+            WatchEvent<Path> ev = (WatchEvent<Path>) event;
+            callback.onChange(dir.resolve(ev.context()), kind);
+        }
+
+        // reset key and remove from set if directory no longer accessible
+        boolean valid = key.reset();
+        if (!valid) {
+            keys.remove(key);
+            callback.onRemoved(dir);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            log.debug("Failed to close the WatchService", e);
+        }
+    }
+}
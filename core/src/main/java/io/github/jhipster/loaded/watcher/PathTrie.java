@@ -0,0 +1,120 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trie of folders, indexed by path elements.
+ *
+ * It resolves the deepest folder containing a path, and the name of the path relative to this folder,
+ * in a single pass over the elements of the path. Folders are compared element by element, so a folder
+ * never matches a sibling folder with a longer name ("target/classes" does not contain "target/classes1").
+ *
+ * @param <T> the type of the value associated to each folder
+ */
+public class PathTrie<T> {
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Associate a value to a folder.
+     */
+    public void put(Path folder, T value) {
+        Path normalizedFolder = normalize(folder);
+        Node<T> node = root.child(String.valueOf(normalizedFolder.getRoot()), true);
+        for (Path element : normalizedFolder) {
+            node = node.child(element.toString(), true);
+        }
+        node.folder = normalizedFolder;
+        node.value = value;
+    }
+
+    /**
+     * Find the deepest folder containing the path.
+     *
+     * @param path the path to resolve
+     * @param separator the separator used to build the relative name
+     * @return the match, or null if no folder contains the path
+     */
+    public Match<T> resolve(Path path, char separator) {
+        Path normalizedPath = normalize(path);
+        Node<T> node = root.child(String.valueOf(normalizedPath.getRoot()), false);
+        Node<T> matchingNode = null;
+        StringBuilder relativeName = new StringBuilder();
+
+        for (Path element : normalizedPath) {
+            if (node != null && node.value != null) {
+                matchingNode = node;
+                relativeName.setLength(0);
+            }
+            if (relativeName.length() > 0) {
+                relativeName.append(separator);
+            }
+            relativeName.append(element.toString());
+            if (node != null) {
+                node = node.child(element.toString(), false);
+            }
+        }
+        if (node != null && node.value != null) {
+            // the path is a folder itself
+            matchingNode = node;
+            relativeName.setLength(0);
+        }
+        if (matchingNode == null) {
+            return null;
+        }
+        return new Match<>(matchingNode.folder, matchingNode.value, relativeName.toString());
+    }
+
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static class Node<T> {
+
+        private Map<String, Node<T>> children;
+        private Path folder;
+        private T value;
+
+        private Node<T> child(String name, boolean create) {
+            Node<T> child = children == null ? null : children.get(name);
+            if (child == null && create) {
+                if (children == null) {
+                    children = new HashMap<>();
+                }
+                child = new Node<>();
+                children.put(name, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * The folder containing a path, with its value and the name of the path relative to this folder.
+     */
+    public static class Match<T> {
+
+        private final Path folder;
+        private final T value;
+        private final String relativeName;
+
+        private Match(Path folder, T value, String relativeName) {
+            this.folder = folder;
+            this.value = value;
+            this.relativeName = relativeName;
+        }
+
+        public Path getFolder() {
+            return folder;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public String getRelativeName() {
+            return relativeName;
+        }
+    }
+}
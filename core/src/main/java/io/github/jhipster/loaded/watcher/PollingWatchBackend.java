@@ -0,0 +1,221 @@
+package io.github.jhipster.loaded.watcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * A backend scanning the watched directories at a fixed interval.
+ *
+ * It works on the file systems where the JDK WatchService receives no events (Docker bind mounts,
+ * network file systems), and does not use any kernel watch, so it is not limited by the inotify limits
+ * on large trees.
+ *
+ * The size and last modified time of every file are kept in an index, so each scan only reports the
+ * differences. The directories are scanned in parallel.
+ */
+public class PollingWatchBackend implements WatchBackend {
+
+    /**
+     * Number of directories under which a scan task is not split anymore.
+     */
+    private static final int SCAN_THRESHOLD = 32;
+
+    private final Logger log = LoggerFactory.getLogger(PollingWatchBackend.class);
+
+    private final long interval;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<Path, Map<Path, FileState>> directories = new ConcurrentHashMap<>();
+    private long nextScan;
+
+    /**
+     * @param interval the time between two scans, in ms
+     * @param parallelism the number of threads used to scan the directories
+     */
+    public PollingWatchBackend(long interval, int parallelism) {
+        this.interval = interval;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public void register(Path dir) throws IOException {
+        if (directories.put(dir, list(dir)) == null) {
+            log.debug("Directory : '{}' will be polled for changes", dir);
+        }
+    }
+
+    @Override
+    public void poll(long timeout, Callback callback) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        if (nextScan == 0) {
+            nextScan = now + interval;
+        }
+        long wait = nextScan - now;
+        if (timeout >= 0 && timeout < wait) {
+            Thread.sleep(timeout);
+            return;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+
+        long scanStart = System.currentTimeMillis();
+        List<Path> dirs = new ArrayList<>(directories.keySet());
+        List<Change> changes = pool.invoke(new ScanTask(dirs, 0, dirs.size()));
+        log.trace("{} directories have been scanned in {} ms", dirs.size(), System.currentTimeMillis() - scanStart);
+        nextScan = System.currentTimeMillis() + interval;
+
+        for (Change change : changes) {
+            if (change.kind == null) {
+                callback.onRemoved(change.path);
+            } else {
+                callback.onChange(change.path, change.kind);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Compare a directory with its index, and update the index.
+     */
+    private void scan(Path dir, List<Change> changes) {
+        Map<Path, FileState> previousStates = directories.get(dir);
+        if (previousStates == null) {
+            return;
+        }
+        Map<Path, FileState> states;
+        try {
+            states = list(dir);
+        } catch (IOException e) {
+            directories.remove(dir);
+            changes.add(new Change(dir, null));
+            return;
+        }
+        for (Map.Entry<Path, FileState> entry : states.entrySet()) {
+            FileState previousState = previousStates.get(entry.getKey());
+            if (previousState == null) {
+                changes.add(new Change(entry.getKey(), ENTRY_CREATE));
+            } else if (!entry.getValue().directory && !entry.getValue().equals(previousState)) {
+                changes.add(new Change(entry.getKey(), ENTRY_MODIFY));
+            }
+        }
+        for (Path previousChild : previousStates.keySet()) {
+            if (!states.containsKey(previousChild)) {
+                changes.add(new Change(previousChild, ENTRY_DELETE));
+            }
+        }
+        directories.put(dir, states);
+    }
+
+    private static Map<Path, FileState> list(Path dir) throws IOException {
+        Map<Path, FileState> states = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, NOFOLLOW_LINKS);
+                    states.put(child, new FileState(attrs));
+                } catch (IOException e) {
+                    // the file has been removed during the scan
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Scan a range of directories, split in sub-tasks.
+     */
+    private class ScanTask extends RecursiveTask<List<Change>> {
+
+        private final List<Path> dirs;
+        private final int start;
+        private final int end;
+
+        private ScanTask(List<Path> dirs, int start, int end) {
+            this.dirs = dirs;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Change> compute() {
+            if (end - start <= SCAN_THRESHOLD) {
+                List<Change> changes = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    scan(dirs.get(i), changes);
+                }
+                return changes;
+            }
+            int middle = (start + end) >>> 1;
+            ScanTask left = new ScanTask(dirs, start, middle);
+            left.fork();
+            List<Change> changes = new ScanTask(dirs, middle, end).compute();
+            changes.addAll(left.join());
+            return changes;
+        }
+    }
+
+    private static class FileState {
+
+        private final long size;
+        private final long lastModified;
+        private final boolean directory;
+
+        private FileState(BasicFileAttributes attrs) {
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.directory = attrs.isDirectory();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+            FileState that = (FileState) o;
+            return size == that.size && lastModified == that.lastModified && directory == that.directory;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (lastModified ^ (lastModified >>> 32)) + (int) (size ^ (size >>> 32));
+        }
+    }
+
+    /**
+     * A change detected by a scan; a null kind means the directory has been removed.
+     */
+    private static class Change {
+
+        private final Path path;
+        private final WatchEvent.Kind kind;
+
+        private Change(Path path, WatchEvent.Kind kind) {
+            this.path = path;
+            this.kind = kind;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+
+/**
+ * The source of the file system events used by the file watcher.
+ *
+ * The file watcher registers every watched directory, then calls poll() in its own thread:
+ * the changes detected by the backend are sent to the callback.
+ *
+ * The backend is selected with the hotReload.watch.backend property: "jdk" (the default), "polling",
+ * or the name of a class implementing this interface with a public no-arg constructor.
+ *
+ * @see JdkWatchBackend
+ * @see PollingWatchBackend
+ */
+public interface WatchBackend {
+
+    /**
+     * Watch a directory, but not its sub-directories: they are registered one by one.
+     * This method can be called by several threads at the same time.
+     *
+     * @param dir the directory to watch
+     * @throws IOException if the directory could not be watched
+     */
+    void register(Path dir) throws IOException;
+
+    /**
+     * Wait for changes and send them to the callback.
+     *
+     * @param timeout the maximum time to wait in ms, or a negative value to wait until changes are detected
+     * @param callback the callback receiving the changes
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     */
+    void poll(long timeout, Callback callback) throws InterruptedException;
+
+    /**
+     * Stop watching all the directories.
+     */
+    void close();
+
+    /**
+     * Receives the changes detected by a backend.
+     */
+    interface Callback {
+
+        /**
+         * A file or a directory has been created or modified.
+         */
+        void onChange(Path path, WatchEvent.Kind kind);
+
+        /**
+         * Some changes have been lost: the directory and its sub-directories must be checked again.
+         */
+        void onOverflow(Path dir);
+
+        /**
+         * A directory is not watched anymore, because it has been removed.
+         */
+        void onRemoved(Path dir);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.jhipster.loaded.watcher;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters the paths watched by the file watcher, with glob patterns relative to the watch folder.
+ *
+ * The patterns are defined in the application-dev.yml as follow
+ *   hotReload:
+ *     watch:
+ *       include:
+ *         - "**.class"
+ *       exclude:
+ *         - static
+ *         - "**.properties"
+ *
+ * A directory matching an exclude pattern is not watched at all, with all its sub-directories.
+ * A file is accepted if it does not match any exclude pattern, and matches an include pattern
+ * when include patterns are defined.
+ */
+public class WatchPathFilter {
+
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    public WatchPathFilter(FileSystem fileSystem, List<String> includePatterns, List<String> excludePatterns) {
+        this.includes = compile(fileSystem, includePatterns);
+        this.excludes = compile(fileSystem, excludePatterns);
+    }
+
+    /**
+     * @param relativeDir the directory, relative to its watch folder
+     * @return true if the directory must be watched
+     */
+    public boolean acceptDirectory(Path relativeDir) {
+        return !matches(excludes, relativeDir);
+    }
+
+    /**
+     * @param relativeFile the file, relative to its watch folder
+     * @return true if the changes of the file must be sent to the listeners
+     */
+    public boolean acceptFile(Path relativeFile) {
+        return !matches(excludes, relativeFile) && (includes.isEmpty() || matches(includes, relativeFile));
+    }
+
+    private static boolean matches(List<PathMatcher> pathMatchers, Path path) {
+        for (PathMatcher pathMatcher : pathMatchers) {
+            if (pathMatcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<PathMatcher> compile(FileSystem fileSystem, List<String> patterns) {
+        List<PathMatcher> pathMatchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.startsWith("glob:") || pattern.startsWith("regex:")) {
+                pathMatchers.add(fileSystem.getPathMatcher(pattern));
+            } else {
+                pathMatchers.add(fileSystem.getPathMatcher("glob:" + pattern));
+            }
+        }
+        return pathMatchers;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Hot reloading file watcher pipeline.
+ */
+package io.github.jhipster.loaded.watcher;